@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+//  Microbenchmarks of the Epic Blend building blocks on workloads written by WorkloadGenerator: BinaryHeap insert, pop
+// and buildHeap, comparing songs per category, createEpicBlend and a steady stream of ADD, REM and ASK events in the
+// given mix, sequentially and with the categories updated in parallel. Every run of a workload starts from a freshly
+// loaded input, loading is not measured. A fallback for blendbench.BlendBenchmarks where JMH is not available, run with:
+// java -cp out BlendBenchmark [add:rem:ask] [size...]
+public class BlendBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int COMPARISONS = 1 << 22;
+
+    private static final int ADD = 0;
+    private static final int REM = 1;
+    private static final int ASK = 2;
+
+    public static void main(String[] args) throws IOException {
+        int[] mix = new int[]{45, 45, 10};
+        int first = 0;
+        if(args.length > 0 && args[0].contains(":")) {
+            mix = WorkloadGenerator.parseMix(args[0]);
+            first = 1;
+        }
+        int[] sizes = args.length == first ? new int[]{10_000, 100_000, 300_000} : new int[args.length - first];
+        for(int i = first; i < args.length; i++) {
+            sizes[i - first] = Integer.parseInt(args[i]);
+        }
+
+        Path dir = Files.createTempDirectory("blend-bench");
+        System.out.printf("%-10s %-28s %14s%n", "size", "benchmark", "ns/op");
+        for(int size : sizes) {
+            Path songsFile = dir.resolve("songs-" + size + ".txt");
+            Path eventFile = dir.resolve("events-" + size + ".txt");
+            new WorkloadGenerator(size, Math.max(1, size / 1000), size, mix, size).write(songsFile, eventFile);
+
+            SongStore songs = loadSongs(songsFile);
+            heap(songs, size);
+            compare(songs, size);
+            createEpicBlend(songs, eventFile, size);
+            events(songs, eventFile, size, mix, null);
+            ForkJoinPool pool = new ForkJoinPool(Category.COUNT - 1);
+            events(songs, eventFile, size, mix, pool);
+            pool.shutdown();
+
+            Files.delete(songsFile);
+            Files.delete(eventFile);
+        }
+        Files.delete(dir);
+    }
+
+    private static void report(int size, String benchmark, long totalNanos, long operations) {
+        System.out.printf("%-10d %-28s %14.1f%n", size, benchmark, (double) totalNanos / operations / MEASURED_ROUNDS);
+    }
+
+    static SongStore loadSongs(Path songsFile) throws IOException {
+        try(InputReader input = new InputReader(songsFile)) {
+            return BlendInput.loadSongs(input);
+        }
+    }
+
+    // Insert every song into an indexed max heap, pop them all, then build a heap from all songs at once
+    private static void heap(SongStore songs, int size) {
+        long[] keys = songs.sortKeys(Category.HEARTACHE);
+        int[] items = new int[size];
+        for(int i = 0; i < size; i++) {
+            items[i] = i + 1;
+        }
+        shuffle(items, new Random(size));
+
+        long insert = 0;
+        long pop = 0;
+        long build = 0;
+        long checksum = 0;
+        for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            BinaryHeap heap = new BinaryHeap(keys, true, new int[songs.capacity()]);
+            long start = System.nanoTime();
+            for(int item : items) {
+                heap.insert(item);
+            }
+            long inserted = System.nanoTime();
+            while(!heap.isEmpty()) {
+                checksum += heap.pop();
+            }
+            long popped = System.nanoTime();
+            BinaryHeap built = new BinaryHeap(items, keys, true, new int[songs.capacity()]);
+            long end = System.nanoTime();
+            checksum += built.peek();
+
+            if(round >= WARMUP_ROUNDS) {
+                insert += inserted - start;
+                pop += popped - inserted;
+                build += end - popped;
+            }
+        }
+        report(size, "heap insert", insert, size);
+        report(size, "heap pop", pop, size);
+        report(size, "heap buildHeap (per item)", build, size);
+        blackhole(checksum);
+    }
+
+    // Compare random pairs of songs in each category
+    private static void compare(SongStore songs, int size) {
+        Random random = new Random(size);
+        int[] pairs = new int[COMPARISONS * 2];
+        for(int i = 0; i < pairs.length; i++) {
+            pairs[i] = 1 + random.nextInt(size);
+        }
+
+        for(Category category : Category.values()) {
+            long total = 0;
+            long checksum = 0;
+            for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for(int i = 0; i < pairs.length; i += 2) {
+                    checksum += songs.compare(pairs[i], pairs[i + 1], category);
+                }
+                if(round >= WARMUP_ROUNDS) {
+                    total += System.nanoTime() - start;
+                }
+            }
+            report(size, "compare " + category, total, COMPARISONS);
+            blackhole(checksum);
+        }
+    }
+
+    private static void createEpicBlend(SongStore songs, Path eventFile, int size) throws IOException {
+        long total = 0;
+        for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            BlendInput blendInput = loadPlaylists(songs, eventFile);
+            long start = System.nanoTime();
+            newEpicBlend(blendInput, null);
+            if(round >= WARMUP_ROUNDS) {
+                total += System.nanoTime() - start;
+            }
+        }
+        report(size, "createEpicBlend (per op)", total, 1);
+    }
+
+    // Process the events of the workload the way Main does, writing the output nowhere
+    private static void events(SongStore songs, Path eventFile, int size, int[] mix, ForkJoinPool pool) throws IOException {
+        long total = 0;
+        int eventCount = 0;
+        for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            int[] events;
+            BlendInput blendInput;
+            try(InputReader input = new InputReader(eventFile)) {
+                blendInput = BlendInput.load(songs, input);
+                events = readEvents(input);
+            }
+            EpicBlend epicBlend = newEpicBlend(blendInput, pool);
+            OutputSink output = new OutputSink(OutputStream.nullOutputStream());
+            eventCount = events.length / 3;
+
+            long start = System.nanoTime();
+            applyEvents(epicBlend, events, output);
+            if(round >= WARMUP_ROUNDS) {
+                total += System.nanoTime() - start;
+            }
+        }
+        String mode = pool == null ? "" : " parallel";
+        report(size, "events " + mix[0] + ":" + mix[1] + ":" + mix[2] + mode, total, Math.max(1, eventCount));
+    }
+
+    // Apply the (type, songID, playlistID) triples of readEvents() the way Main does
+    static void applyEvents(EpicBlend epicBlend, int[] events, OutputSink output) throws IOException {
+        for(int i = 0; i < events.length; i += 3) {
+            int songID = events[i + 1];
+            int playlistID = events[i + 2];
+            switch (events[i]) {
+                case REM -> {
+                    epicBlend.remove(songID, playlistID, output);
+                }
+                case ADD -> {
+                    epicBlend.add(songID, playlistID, output);
+                }
+                default -> epicBlend.ask(output);
+            }
+        }
+        output.flush();
+    }
+
+    static BlendInput loadPlaylists(SongStore songs, Path eventFile) throws IOException {
+        try(InputReader input = new InputReader(eventFile)) {
+            return BlendInput.load(songs, input);
+        }
+    }
+
+    static EpicBlend newEpicBlend(BlendInput blendInput, ForkJoinPool pool) {
+        EpicBlend epicBlend = new EpicBlend(blendInput.limits, blendInput.songs, blendInput.membership, pool);
+        epicBlend.createEpicBlend(blendInput.initialEntries);
+        return epicBlend;
+    }
+
+    // Events following the playlists as (type, songID, playlistID) triples
+    static int[] readEvents(InputReader input) throws IOException {
+        int eventCount = input.nextInt();
+        int[] events = new int[eventCount * 3];
+        for(int i = 0; i < eventCount; i++) {
+            EventType eventType = EventType.of(input.nextTokenCode());
+            events[i * 3] = eventType == EventType.ADD ? ADD : eventType == EventType.REM ? REM : ASK;
+            if(eventType != EventType.ASK) {
+                events[i * 3 + 1] = input.nextInt();
+                events[i * 3 + 2] = input.nextInt();
+            }
+        }
+        return events;
+    }
+
+    private static void shuffle(int[] items, Random random) {
+        for(int i = items.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = items[i];
+            items[i] = items[j];
+            items[j] = tmp;
+        }
+    }
+
+    // Keep the JIT from dropping the measured work as unused
+    private static void blackhole(long checksum) {
+        if(checksum == 42) {
+            System.out.print("");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.Random;
+
+//  Compares BinaryHeap arities on large indexed heaps: building a heap of n items at once, a steady stream of removing
+// a random item and inserting it back with a new key as ADD and REM events do, and popping every item. Keys are random
+// so sifting touches the whole array. 10^8 items need about 2 GB of heap space. A fallback for
+// blendbench.HeapBenchmarks where JMH is not available, run with: java -cp out HeapBenchmark [size...]
+public class HeapBenchmark {
+    private static final int[] ARITIES = {2, 4, 8};
+    private static final int UPDATES = 1 << 20;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000_000, 10_000_000} : new int[args.length];
+        for(int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-12s %-6s %14s %18s %14s%n", "size", "arity", "build (ms)", "update (ns/op)", "pop (ns/op)");
+        for(int size : sizes) {
+            long[] keys = new long[size + 1];
+            int[] positions = new int[size + 1];
+            int[] items = new int[size];
+            for(int arity : ARITIES) {
+                for(int round = 0; round < 2; round++) {  // The first round warms up
+                    Random random = new Random(size);
+                    for(int item = 1; item <= size; item++) {
+                        keys[item] = random.nextLong();
+                        items[item - 1] = item;
+                    }
+                    BinaryHeap heap = new BinaryHeap(keys, true, positions, arity);
+
+                    long start = System.nanoTime();
+                    heap.insertAll(items, size);
+                    long build = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    for(int i = 0; i < UPDATES; i++) {
+                        int item = 1 + random.nextInt(size);
+                        heap.remove(item);
+                        keys[item] = random.nextLong();
+                        heap.insert(item);
+                    }
+                    long update = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    long checksum = 0;
+                    while(!heap.isEmpty()) {
+                        checksum += heap.pop();
+                    }
+                    long pop = System.nanoTime() - start;
+
+                    if(round == 1) {
+                        System.out.printf("%-12d %-6d %14.1f %18.1f %14.1f%n", size, arity,
+                                build / 1e6, (double) update / UPDATES, (double) pop / size);
+                    }
+                    if(checksum != (long) size * (size + 1) / 2) {
+                        throw new IllegalStateException("Popped items do not match the inserted ones");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.Random;
+
+//  Compares the ASK sort paths: the recursive Lomuto quick sort EpicBlend.ask used to run over song IDs against
+// KeySort over packed play count keys. Inputs are random, share a single play count or are already in print order,
+// the last two being the worst cases of the quick sort. A fallback for blendbench.SortBenchmarks where JMH is not
+// available, run with: java -cp out SortBenchmark [size...]
+public class SortBenchmark {
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000, 10_000, 100_000} : new int[args.length];
+        for(int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-10s %-12s %18s %18s%n", "size", "input", "lomuto (us/op)", "keySort (us/op)");
+        for(int size : sizes) {
+            for(String input : new String[]{"random", "samePlays", "sorted"}) {
+                SongStore songs = songs(size, input);
+                int[] songIDs = printOrder(songs, size, input);
+                System.out.printf("%-10d %-12s %18s %18.1f%n", size, input, lomuto(songs, songIDs), keySort(songs, songIDs));
+            }
+        }
+    }
+
+    // Catalog of the given size whose play counts are random or all the same
+    static SongStore songs(int size, String input) {
+        Random random = new Random(size);
+        SongStore songs = new SongStore(size);
+        for(int songID = 1; songID <= size; songID++) {
+            int playCount = input.equals("samePlays") ? 1000 : random.nextInt(1_000_000);
+            songs.add(new int[]{songID, playCount, 0, 0, 0}, Integer.toString(random.nextInt(), 36));
+        }
+        songs.buildSortKeys();
+        return songs;
+    }
+
+    // Song IDs in print order (descending play count keys) for sorted input, shuffled otherwise
+    static int[] printOrder(SongStore songs, int size, String input) {
+        long[] keys = new long[size];
+        for(int i = 0; i < size; i++) {
+            keys[i] = songs.playCountKey[i + 1];
+        }
+        KeySort.sort(keys, size);
+
+        int[] songIDs = new int[size];
+        for(int i = 0; i < size; i++) {
+            songIDs[i] = songs.songOfKey(keys[size - 1 - i]);
+        }
+        if(!input.equals("sorted")) {
+            Random random = new Random(size + 1);
+            for(int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = songIDs[i];
+                songIDs[i] = songIDs[j];
+                songIDs[j] = tmp;
+            }
+        }
+        return songIDs;
+    }
+
+    private static String lomuto(SongStore songs, int[] songIDs) {
+        try {
+            long total = 0;
+            for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                int[] copy = songIDs.clone();
+                long start = System.nanoTime();
+                quickSort(songs, copy, 0, copy.length - 1);
+                if(round >= WARMUP_ROUNDS) {
+                    total += System.nanoTime() - start;
+                }
+            }
+            return String.format("%.1f", total / 1000.0 / MEASURED_ROUNDS);
+        }
+        catch(StackOverflowError e) {
+            return "stack overflow";
+        }
+    }
+
+    private static double keySort(SongStore songs, int[] songIDs) {
+        long total = 0;
+        for(int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            long[] keys = new long[songIDs.length];
+            for(int i = 0; i < songIDs.length; i++) {
+                keys[i] = songs.playCountKey[songIDs[i]];
+            }
+            KeySort.sort(keys, keys.length);
+            if(round >= WARMUP_ROUNDS) {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / 1000.0 / MEASURED_ROUNDS;
+    }
+
+    // Sort path EpicBlend.ask used before BlendOrder, last element as the Lomuto pivot
+    static void quickSort(SongStore songs, int[] songsCombinedFinal, int low, int high) {
+        if(low < high) {
+            int partitionIndex = partition(songs, songsCombinedFinal, low, high);
+            quickSort(songs, songsCombinedFinal, low, partitionIndex - 1);
+            quickSort(songs, songsCombinedFinal, partitionIndex + 1, high);
+        }
+    }
+
+    private static int partition(SongStore songs, int[] songsCombinedFinal, int low, int high) {
+        long pivotKey = songs.playCountKey[songsCombinedFinal[high]];
+        int i = low - 1;
+        for(int j = low; j < high; j++) {
+            if(songs.playCountKey[songsCombinedFinal[j]] > pivotKey) {
+                i++;
+                int tmpSong = songsCombinedFinal[i];
+                songsCombinedFinal[i] = songsCombinedFinal[j];
+                songsCombinedFinal[j] = tmpSong;
+            }
+        }
+        int tmpSong = songsCombinedFinal[i + 1];
+        songsCombinedFinal[i + 1] = songsCombinedFinal[high];
+        songsCombinedFinal[high] = tmpSong;
+        return i + 1;
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+//  Writes a synthetic songs.txt and event file in the input format of Main. Runs with the same arguments produce the
+// same files, so benchmarks can be repeated offline. Every ADD names a song that is in no playlist and every REM a song
+// together with its current playlist. Run with:
+// java -cp out WorkloadGenerator <dir> [songCount] [playlistCount] [eventCount] [add:rem:ask] [seed]
+public class WorkloadGenerator {
+    private static final byte[] ASK = "ASK\n".getBytes();
+
+    private final int songCount;
+    private final int playlistCount;
+    private final int eventCount;
+    private final int[] mix;  // Relative amounts of ADD, REM and ASK events
+    private final long seed;
+
+    WorkloadGenerator(int songCount, int playlistCount, int eventCount, int[] mix, long seed) {
+        this.songCount = songCount;
+        this.playlistCount = playlistCount;
+        this.eventCount = eventCount;
+        this.mix = mix;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length == 0) {
+            System.err.println("Usage: WorkloadGenerator <dir> [songCount] [playlistCount] [eventCount] [add:rem:ask] [seed]");
+            System.exit(1);
+        }
+        int songCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int playlistCount = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, songCount / 1000);
+        int eventCount = args.length > 3 ? Integer.parseInt(args[3]) : songCount;
+        int[] mix = args.length > 4 ? parseMix(args[4]) : new int[]{45, 45, 10};
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+        Path dir = Path.of(args[0]);
+        Files.createDirectories(dir);
+        new WorkloadGenerator(songCount, playlistCount, eventCount, mix, seed).write(dir.resolve("songs.txt"), dir.resolve("general_small.txt"));
+    }
+
+    // Parse a mix given as "add:rem:ask"
+    public static int[] parseMix(String mix) {
+        String[] parts = mix.split(":");
+        if(parts.length != 3) {
+            throw new IllegalArgumentException("Mix must be given as add:rem:ask, got " + mix);
+        }
+        int[] ratios = new int[3];
+        for(int i = 0; i < 3; i++) {
+            ratios[i] = Integer.parseInt(parts[i]);
+        }
+        if(ratios[0] + ratios[1] + ratios[2] <= 0) {
+            throw new IllegalArgumentException("Mix must contain at least one event, got " + mix);
+        }
+        return ratios;
+    }
+
+    // Write the catalog to the songs file and the limits, playlists and events to the event file
+    public void write(Path songsFile, Path eventFile) throws IOException {
+        Random random = new Random(this.seed);
+
+        try(OutputSink output = OutputSink.toFile(songsFile, false)) {
+            writeSongs(output, random);
+        }
+        try(OutputSink output = OutputSink.toFile(eventFile, false)) {
+            writeEvents(output, random);
+        }
+    }
+
+    private void writeSongs(OutputSink output, Random random) throws IOException {
+        output.writeInt(this.songCount);
+        output.newLine();
+        for(int songID = 1; songID <= this.songCount; songID++) {
+            output.writeInt(songID);
+            output.writeByte(' ');
+            // Multiplying by an odd constant is a bijection on ints, which keeps the names unique but unordered
+            byte[] name = Integer.toUnsignedString(songID * 0x9E3779B9, 36).getBytes();
+            output.write(name, name.length);
+            output.writeByte(' ');
+            output.writeInt(random.nextInt(1_000_000));
+            for(int i = 0; i < 3; i++) {
+                output.writeByte(' ');
+                output.writeInt(random.nextInt(101));
+            }
+            output.newLine();
+        }
+    }
+
+    private void writeEvents(OutputSink output, Random random) throws IOException {
+        // Songs in a playlist and songs in none, each kept in a swap-remove array with the slot of every song
+        int[] owner = new int[this.songCount + 1];
+        int[] owned = new int[this.songCount];
+        int[] free = new int[this.songCount];
+        int[] slot = new int[this.songCount + 1];
+        int ownedCount = 0;
+        int freeCount = 0;
+
+        // Half of the catalog starts inside the playlists
+        int[][] playlists = new int[this.playlistCount + 1][];
+        int[] playlistSizes = new int[this.playlistCount + 1];
+        for(int songID = 1; songID <= this.songCount; songID++) {
+            if(random.nextBoolean()) {
+                owner[songID] = 1 + random.nextInt(this.playlistCount);
+                slot[songID] = ownedCount;
+                owned[ownedCount++] = songID;
+                playlistSizes[owner[songID]]++;
+            }
+            else {
+                slot[songID] = freeCount;
+                free[freeCount++] = songID;
+            }
+        }
+
+        // Blend sizes around a tenth of the initial songs, spread over at least a few playlists per category
+        int blendLimit = Math.max(1, ownedCount / 30);
+        int categoryLimit = Math.max(1, 4 * blendLimit / this.playlistCount);
+        int[] limits = {categoryLimit, blendLimit, blendLimit, blendLimit};
+        for(int i = 0; i < limits.length; i++) {
+            output.writeInt(limits[i]);
+            output.writeByte(i == limits.length - 1 ? '\n' : ' ');
+        }
+
+        output.writeInt(this.playlistCount);
+        output.newLine();
+        for(int playlistID = 1; playlistID <= this.playlistCount; playlistID++) {
+            playlists[playlistID] = new int[playlistSizes[playlistID]];
+            playlistSizes[playlistID] = 0;
+        }
+        for(int i = 0; i < ownedCount; i++) {
+            int songID = owned[i];
+            playlists[owner[songID]][playlistSizes[owner[songID]]++] = songID;
+        }
+        for(int playlistID = 1; playlistID <= this.playlistCount; playlistID++) {
+            output.writeInt(playlistID);
+            output.writeByte(' ');
+            output.writeInt(playlists[playlistID].length);
+            output.newLine();
+            for(int i = 0; i < playlists[playlistID].length; i++) {
+                if(i > 0) {
+                    output.writeByte(' ');
+                }
+                output.writeInt(playlists[playlistID][i]);
+            }
+            output.newLine();
+        }
+
+        output.writeInt(this.eventCount);
+        output.newLine();
+        int total = this.mix[0] + this.mix[1] + this.mix[2];
+        for(int i = 0; i < this.eventCount; i++) {
+            int draw = random.nextInt(total);
+            if(draw < this.mix[0] && freeCount > 0) {
+                int songID = free[random.nextInt(freeCount)];
+                int last = free[--freeCount];  // Move the song from the free songs to the owned songs
+                free[slot[songID]] = last;
+                slot[last] = slot[songID];
+                slot[songID] = ownedCount;
+                owned[ownedCount++] = songID;
+                owner[songID] = 1 + random.nextInt(this.playlistCount);
+
+                writeEvent(output, "ADD ", songID, owner[songID]);
+            }
+            else if(draw >= this.mix[0] && draw < this.mix[0] + this.mix[1] && ownedCount > 0) {
+                int songID = owned[random.nextInt(ownedCount)];
+                int last = owned[--ownedCount];  // Move the song from the owned songs to the free songs
+                owned[slot[songID]] = last;
+                slot[last] = slot[songID];
+                slot[songID] = freeCount;
+                free[freeCount++] = songID;
+
+                writeEvent(output, "REM ", songID, owner[songID]);
+                owner[songID] = 0;
+            }
+            else {  // ASK, also written when the drawn event has no song to work on
+                output.write(ASK, ASK.length);
+            }
+        }
+    }
+
+    private static void writeEvent(OutputSink output, String event, int songID, int playlistID) throws IOException {
+        output.write(event.getBytes(), event.length());
+        output.writeInt(songID);
+        output.writeByte(' ');
+        output.writeInt(playlistID);
+        output.newLine();
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Workloads measured by blendbench.BlendBenchmarks, see BlendBenchmark for the same measurements without JMH
+public class JmhBlendFixture implements blendbench.BlendBenchmarks.Fixture {
+    private Path dir;
+    private Path songsFile;
+    private Path eventFile;
+    private SongStore songs;
+    private int[] pairs;  // Song pairs compare() goes through
+
+    private BlendInput blendInput;  // Input of the last loadInput() or prepareEvents()
+    private ForkJoinPool pool;  // Created by the first parallel prepareEvents()
+    private EpicBlend epicBlend;  // Blend runEvents() applies the events to
+    private int[] events;
+    private OutputSink output;
+
+    @Override
+    public void setUp(int size, String mix) throws IOException {
+        this.dir = Files.createTempDirectory("blend-jmh");
+        this.songsFile = this.dir.resolve("songs.txt");
+        this.eventFile = this.dir.resolve("general_small.txt");
+        new WorkloadGenerator(size, Math.max(1, size / 1000), size, WorkloadGenerator.parseMix(mix), size).write(this.songsFile, this.eventFile);
+        this.songs = BlendBenchmark.loadSongs(this.songsFile);
+
+        Random random = new Random(size);
+        this.pairs = new int[COMPARISONS * 2];
+        for(int i = 0; i < this.pairs.length; i++) {
+            this.pairs[i] = 1 + random.nextInt(size);
+        }
+        this.output = new OutputSink(OutputStream.nullOutputStream());
+    }
+
+    @Override
+    public long compare(String category) {
+        Category compared = Category.valueOf(category);
+        long checksum = 0;
+        for(int i = 0; i < this.pairs.length; i += 2) {
+            checksum += this.songs.compare(this.pairs[i], this.pairs[i + 1], compared);
+        }
+        return checksum;
+    }
+
+    @Override
+    public void loadInput() throws IOException {
+        this.blendInput = BlendBenchmark.loadPlaylists(this.songs, this.eventFile);
+    }
+
+    @Override
+    public Object createEpicBlend() {
+        return BlendBenchmark.newEpicBlend(this.blendInput, null);
+    }
+
+    @Override
+    public void prepareEvents(boolean parallel) throws IOException {
+        if(parallel && this.pool == null) {
+            this.pool = new ForkJoinPool(Category.COUNT - 1);
+        }
+        try(InputReader reader = new InputReader(this.eventFile)) {
+            this.blendInput = BlendInput.load(this.songs, reader);
+            this.events = BlendBenchmark.readEvents(reader);
+        }
+        this.epicBlend = BlendBenchmark.newEpicBlend(this.blendInput, parallel ? this.pool : null);
+    }
+
+    @Override
+    public Object runEvents() throws IOException {
+        BlendBenchmark.applyEvents(this.epicBlend, this.events, this.output);
+        return this.epicBlend;
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        if(this.pool != null) {
+            this.pool.shutdown();
+        }
+        Files.deleteIfExists(this.songsFile);
+        Files.deleteIfExists(this.eventFile);
+        Files.deleteIfExists(this.dir);
+    }
+}
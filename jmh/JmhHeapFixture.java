@@ -0,0 +1,62 @@
+import java.util.Random;
+
+// Heaps measured by blendbench.HeapBenchmarks, see HeapBenchmark for the same measurements without JMH
+public class JmhHeapFixture implements blendbench.HeapBenchmarks.Fixture {
+    private int size;
+    private int arity;
+    private long[] keys;
+    private int[] items;
+    private int[] positions;  // Positions of the heap update() and popAll() work on
+    private int[] buildPositions;  // Positions of the heaps build() creates
+    private BinaryHeap heap;
+    private Random random;
+
+    @Override
+    public void setUp(int size, int arity) {
+        this.size = size;
+        this.arity = arity;
+        this.random = new Random(size);
+        this.keys = new long[size + 1];
+        this.items = new int[size];
+        for(int item = 1; item <= size; item++) {
+            this.keys[item] = this.random.nextLong();
+            this.items[item - 1] = item;
+        }
+        this.positions = new int[size + 1];
+        this.buildPositions = new int[size + 1];
+        this.heap = new BinaryHeap(this.keys, true, this.positions, arity);
+        this.heap.insertAll(this.items, size);
+    }
+
+    @Override
+    public int build() {
+        BinaryHeap built = new BinaryHeap(this.keys, true, this.buildPositions, this.arity);
+        built.insertAll(this.items, this.size);
+        return built.peek();
+    }
+
+    @Override
+    public int update() {
+        int item = 1 + this.random.nextInt(this.size);
+        this.heap.remove(item);
+        this.keys[item] = this.random.nextLong();
+        this.heap.insert(item);
+        return this.heap.peek();
+    }
+
+    @Override
+    public void refill() {
+        if(this.heap.isEmpty()) {
+            this.heap.insertAll(this.items, this.size);
+        }
+    }
+
+    @Override
+    public long popAll() {
+        long checksum = 0;
+        while(!this.heap.isEmpty()) {
+            checksum += this.heap.pop();
+        }
+        return checksum;
+    }
+}
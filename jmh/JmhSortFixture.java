@@ -0,0 +1,33 @@
+// Sorts measured by blendbench.SortBenchmarks, see SortBenchmark for the same measurements without JMH
+public class JmhSortFixture implements blendbench.SortBenchmarks.Fixture {
+    private SongStore songs;
+    private int[] songIDs;
+
+    @Override
+    public void setUp(int size, String input) {
+        this.songs = SortBenchmark.songs(size, input);
+        this.songIDs = SortBenchmark.printOrder(this.songs, size, input);
+    }
+
+    @Override
+    public int lomuto() {
+        int[] copy = this.songIDs.clone();
+        try {
+            SortBenchmark.quickSort(this.songs, copy, 0, copy.length - 1);
+        }
+        catch(StackOverflowError e) {
+            throw new IllegalStateException("Lomuto quick sort overflowed the stack on " + copy.length + " songs");
+        }
+        return copy[0];
+    }
+
+    @Override
+    public long keySort() {
+        long[] keys = new long[this.songIDs.length];
+        for(int i = 0; i < this.songIDs.length; i++) {
+            keys[i] = this.songs.playCountKey[this.songIDs[i]];
+        }
+        KeySort.sort(keys, keys.length);
+        return keys[0];
+    }
+}
@@ -0,0 +1,124 @@
+package blendbench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//  The Epic Blend building blocks on workloads written by WorkloadGenerator, the JMH version of BlendBenchmark: comparing
+// songs per category, createEpicBlend and the whole event stream of a workload, sequentially and with the categories
+// updated in parallel. Every combination runs in its own forked JVM, so the sequential and parallel runs do not share
+// a JIT profile. Each createEpicBlend and event stream starts from a freshly loaded input, loading is not measured
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BlendBenchmarks {
+    // Implemented by JmhBlendFixture under jmh/
+    public interface Fixture {
+        int COMPARISONS = 1 << 22;  // Song pairs compared by each compare() call
+
+        // Write a workload of the given size and ADD:REM:ASK mix and load its songs
+        void setUp(int size, String mix) throws IOException;
+
+        // Compare COMPARISONS random pairs of songs in the named category and return the sum of the results
+        long compare(String category);
+
+        // Load the limits and playlists of the workload for createEpicBlend()
+        void loadInput() throws IOException;
+
+        // Create an Epic Blend from the loaded input and return it
+        Object createEpicBlend();
+
+        // Load the workload and create its Epic Blend for runEvents(), with the categories updated in parallel or not
+        void prepareEvents(boolean parallel) throws IOException;
+
+        // Apply every event of the workload, writing the output nowhere, and return the Epic Blend
+        Object runEvents() throws IOException;
+
+        // Delete the workload files and stop the parallel pool
+        void tearDown() throws IOException;
+    }
+
+    @State(Scope.Thread)
+    public static class Workload {
+        @Param({"10000", "100000", "300000"})
+        public int size;
+
+        @Param({"45:45:10"})
+        public String mix;
+
+        Fixture fixture;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            this.fixture = Fixtures.load("JmhBlendFixture", Fixture.class);
+            this.fixture.setUp(this.size, this.mix);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            this.fixture.tearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Comparisons extends Workload {
+        @Param({"HEARTACHE", "ROAD_TRIP", "BLISSFUL"})
+        public String category;
+    }
+
+    // Input loaded again before each createEpicBlend() outside of the measured time
+    @State(Scope.Thread)
+    public static class LoadedInput extends Workload {
+        @Setup(Level.Invocation)
+        public void loadInput() throws IOException {
+            this.fixture.loadInput();
+        }
+    }
+
+    // Epic Blend created again before each event stream outside of the measured time
+    @State(Scope.Thread)
+    public static class FreshBlend extends Workload {
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        @Setup(Level.Invocation)
+        public void prepareEvents() throws IOException {
+            this.fixture.prepareEvents(this.parallel);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(Fixture.COMPARISONS)
+    public long compare(Comparisons comparisons) {
+        return comparisons.fixture.compare(comparisons.category);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object createEpicBlend(LoadedInput input) {
+        return input.fixture.createEpicBlend();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object events(FreshBlend blend) throws IOException {
+        return blend.fixture.runEvents();
+    }
+}
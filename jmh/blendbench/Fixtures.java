@@ -0,0 +1,19 @@
+package blendbench;
+
+//  JMH refuses benchmarks in the default package, where the Epic Blend lives, and code in a named package cannot refer
+// to classes of the default package. Each benchmark class therefore declares a fixture interface that a default package
+// class under jmh/ implements, and loads that class by name once while setting up. The measured calls go through the
+// interface, which the JIT inlines like a direct call since a single class implements it
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static <T> T load(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        }
+        catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load the benchmark fixture " + className, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package blendbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//  BinaryHeap arities on large indexed heaps with random keys, the JMH version of HeapBenchmark: building a heap of all
+// items at once, removing a random item and inserting it back with a new key as ADD and REM events do, and popping every
+// item. Each arity and size runs in its own forked JVM. 10^8 items need about 2 GB of heap space, add -jvmArgs -Xmx3g
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HeapBenchmarks {
+    // Implemented by JmhHeapFixture under jmh/
+    public interface Fixture {
+        // Random keys for items 1 to size and a full heap of the given arity
+        void setUp(int size, int arity);
+
+        // Build a new heap of every item at once and return its top item
+        int build();
+
+        // Remove a random item and insert it back with a new random key, return the top item
+        int update();
+
+        // Fill the heap again after popAll()
+        void refill();
+
+        // Pop every item and return the sum of their IDs
+        long popAll();
+    }
+
+    @State(Scope.Thread)
+    public static class Heap {
+        @Param({"2", "4", "8"})
+        public int arity;
+
+        @Param({"1000000", "10000000"})
+        public int size;
+
+        Fixture fixture;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.fixture = Fixtures.load("JmhHeapFixture", Fixture.class);
+            this.fixture.setUp(this.size, this.arity);
+        }
+    }
+
+    // Heap that popAll() empties, filled again before each call outside of the measured time
+    @State(Scope.Thread)
+    public static class FullHeap extends Heap {
+        @Setup(Level.Invocation)
+        public void refill() {
+            this.fixture.refill();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int build(Heap heap) {
+        return heap.fixture.build();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int update(Heap heap) {
+        return heap.fixture.update();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long popAll(FullHeap heap) {
+        return heap.fixture.popAll();
+    }
+}
@@ -0,0 +1,64 @@
+package blendbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//  The ASK sort paths, the JMH version of SortBenchmark: the recursive Lomuto quick sort EpicBlend.ask used to run over
+// song IDs against KeySort over packed play count keys. Inputs are random, share a single play count or are already in
+// print order. The quick sort overflows the stack on the last two at large sizes, that run fails instead of reporting
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SortBenchmarks {
+    // Implemented by JmhSortFixture under jmh/
+    public interface Fixture {
+        // Catalog of the given size and the song IDs to sort, in print order for sorted input and shuffled otherwise
+        void setUp(int size, String input);
+
+        // Sort a copy of the song IDs with the Lomuto quick sort and return the first one
+        int lomuto();
+
+        // Sort the play count keys of the song IDs with KeySort and return the first one
+        long keySort();
+    }
+
+    @State(Scope.Thread)
+    public static class Songs {
+        @Param({"1000", "10000", "100000"})
+        public int size;
+
+        @Param({"random", "samePlays", "sorted"})
+        public String input;
+
+        Fixture fixture;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.fixture = Fixtures.load("JmhSortFixture", Fixture.class);
+            this.fixture.setUp(this.size, this.input);
+        }
+    }
+
+    @Benchmark
+    public int lomuto(Songs songs) {
+        return songs.fixture.lomuto();
+    }
+
+    @Benchmark
+    public long keySort(Songs songs) {
+        return songs.fixture.keySort();
+    }
+}
@@ -1,38 +1,56 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
 
-// Binary Heap implementation to store song objects. Max heap unless specified otherwise.
+// Heap implementation to store song IDs. Max heap unless specified otherwise.
+//  Each slot has arity children, 4 unless specified otherwise, the name is kept from when it always had 2. The children
+// of slot i are slots arity*(i-1)+2 to arity*i+1. A wider heap is shallower, so sifting up does fewer moves, and the
+// children of a slot sit next to each other in the array, so sifting down compares siblings that share a cache line
+//  If a positions array is given the heap is indexed: positions[songID] holds the slot of the song inside the heap
+// (0 when the song is not in the heap), which allows removing or repositioning any song in O(log n)
+//  Removed items leave the heap right away, and the array is halved once the heap uses less than a quarter of it, so a
+// heap that shrank after heavy churn gives its memory back. Each halving copies at most a quarter of the old array and
+// follows as many removals, so it costs O(1) amortized per removal and never more than one copy per event
 public class BinaryHeap {
+    private static final int MIN_CAPACITY = 8;  // The array never shrinks below this
+    public static final int DEFAULT_ARITY = 4;
+
     private int size;
-    public ArrayList<Song> array;
-    private final boolean isMaxHeap;  // Boolean value denoting whether the binary heap is max or min heap
-    private final String sortBy;  // Value of the song object to sort by (name, playCount, heartache, roadTrip, blissful)
-    public int elementCount;  // Decreases immediately when a song is removed via remove function in EpicBlend class
+    private int[] array;  // Song IDs, 0th index is not used
+    private long[] keys;  // Precomputed sort keys of the items indexed by item ID, see SongStore
+    //  All bits are set for a min heap and none for a max heap. Flipping every bit of a key reverses its order, so both
+    // kinds of heaps compare keys the same way without checking which kind of heap they are
+    private final long order;
+    private final int arity;  // Children of each slot
+    private int[] positions;  // Slot of each item inside the heap indexed by item ID, null for a non-indexed heap
 
-    BinaryHeap() {
-        this(true, "name");
+    BinaryHeap(long[] keys, boolean isMaxHeap) {
+        this(keys, isMaxHeap, null);
     }
-    BinaryHeap(boolean isMaxHeap, String sortBy) {
-        this.size = 0;
-        this.elementCount = 0;
-        this.array = new ArrayList<>();
-        this.array.add(null);
-        this.isMaxHeap = isMaxHeap;
-        this.sortBy = sortBy;
+    BinaryHeap(long[] keys, boolean isMaxHeap, int[] positions) {
+        this(keys, isMaxHeap, positions, DEFAULT_ARITY);
     }
-    BinaryHeap(Song[] items, boolean isMaxHeap, String sortBy) {
+    BinaryHeap(long[] keys, boolean isMaxHeap, int[] positions, int arity) {
+        if(arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2, got " + arity);
+        }
         this.size = 0;
-        this.elementCount = 0;
-        this.isMaxHeap = isMaxHeap;
-        this.sortBy = sortBy;
-        this.array = new ArrayList<>();
-        this.array.add(null);
-        for(Song item : items) {
-            if(item == null) {
+        this.array = new int[MIN_CAPACITY];
+        this.keys = keys;
+        this.order = isMaxHeap ? 0 : -1;
+        this.positions = positions;
+        this.arity = arity;
+    }
+    BinaryHeap(int[] items, long[] keys, boolean isMaxHeap) {
+        this(items, keys, isMaxHeap, null);
+    }
+    BinaryHeap(int[] items, long[] keys, boolean isMaxHeap, int[] positions) {
+        this(keys, isMaxHeap, positions);
+        this.array = new int[items.length + 1];
+        for(int item : items) {
+            if(item == 0) {
                 break;
             }
-            this.array.add(item);
-            this.size++;
-            this.elementCount++;
+            this.array[++this.size] = item;
         }
         buildHeap();
     }
@@ -42,95 +60,188 @@ public class BinaryHeap {
         return this.size;
     }
 
+    // Number of items the heap can hold before its array grows
+    public int capacity() {
+        return this.array.length - 1;
+    }
+
     public boolean isEmpty() {
         return this.size == 0;
     }
 
+    // Return the song ID at the given slot, slots are numbered from 1 to size
+    public int get(int slot) {
+        return this.array[slot];
+    }
+
+    // Check whether a song is inside the heap, only available for indexed heaps
+    public boolean contains(int item) {
+        return this.positions[item] != 0;
+    }
+
     // Return the item at the top of the max-min heap
-    public Song peek() {
-        return array.get(1);
+    public int peek() {
+        return this.array[1];
     }
 
     // Remove the top item from the heap and return it
-    public Song pop() {
-        Song topItem = peek();
-        Song lastItem = this.array.get(this.size);
-        this.array.set(1, lastItem);  // Place the last item in the heap to the top
-        percolateDown(1);
-        this.array.remove(this.size);  // Remove the last item from the max heap
-        this.size--;
-
+    public int pop() {
+        int topItem = peek();
+        removeAt(1);
         return topItem;
     }
 
+    // Remove a specific song from an indexed heap in O(log n)
+    public void remove(int item) {
+        removeAt(this.positions[item]);
+    }
+
+    // Restore the heap order around a song of an indexed heap whose sort value has changed
+    public void update(int item) {
+        int hole = percolateUp(this.positions[item]);
+        percolateDown(hole);
+    }
+
+    //  Switch to larger key and position arrays when item IDs outgrow the current ones. The new arrays must start with the
+    // same values as the old ones
+    public void resize(long[] keys, int[] positions) {
+        this.keys = keys;
+        this.positions = positions;
+    }
+
     // Insert an item to the max-min heap
-    public void insert(Song item) {
-        this.elementCount++;
-        int hole = ++this.size;
-        this.array.add(item);
-
-        if(this.isMaxHeap) {
-            while(hole > 1 && item.compare(this.array.get(hole/2), this.sortBy) > 0) {
-                Song parent = this.array.get(hole/2);
-                this.array.set(hole, parent);
-                this.array.set(hole/2, item);
-                hole /= 2;
-            }
+    public void insert(int item) {
+        if(this.size + 1 == this.array.length) {
+            this.array = Arrays.copyOf(this.array, this.array.length * 2);
+        }
+        place(++this.size, item);
+        percolateUp(this.size);
+    }
+
+    // Insert the first count items of the array at once, the heap order is rebuilt in O(n) instead of O(count log n)
+    public void insertAll(int[] items, int count) {
+        if(this.size + count >= this.array.length) {
+            this.array = Arrays.copyOf(this.array, this.size + count + 1);
         }
-        else {
-            while(hole > 1 && item.compare(this.array.get(hole/2), this.sortBy) < 0) {
-                Song parent = this.array.get(hole/2);
-                this.array.set(hole, parent);
-                this.array.set(hole/2, item);
-                hole /= 2;
+        System.arraycopy(items, 0, this.array, this.size + 1, count);
+        this.size += count;
+        buildHeap();
+    }
+
+    // Write the items in slot order to a snapshot, see StateSnapshot. The order depends on the arity
+    public void write(SnapshotWriter output) throws IOException {
+        output.writeInt(this.size);
+        output.writeInts(this.array, 1, this.size);
+    }
+
+    //  Fill an empty heap with the items written by write() from a heap of the same arity, they are already in heap order
+    // so only positions are noted
+    public void read(SnapshotReader input) throws IOException {
+        int count = input.readInt();
+        this.array = new int[Math.max(MIN_CAPACITY, count + 1)];
+        input.readInts(this.array, 1, count);
+        this.size = count;
+        if(this.positions != null) {
+            for(int i = 1; i <= this.size; i++) {
+                this.positions[this.array[i]] = i;
             }
         }
     }
 
+    // Fill the slot of a removed item with the last item in the heap and move it to its correct position
+    private void removeAt(int hole) {
+        int removedItem = this.array[hole];
+        int lastItem = this.array[this.size--];  // Remove the last item from the heap
+        if(this.positions != null) {
+            this.positions[removedItem] = 0;
+        }
+
+        if(hole <= this.size) {  // Removed item was not the last one, place the last item in its slot
+            place(hole, lastItem);
+            percolateDown(percolateUp(hole));
+        }
+        if(this.array.length > MIN_CAPACITY && this.size < this.array.length / 4) {
+            int[] shrunk = new int[Math.max(MIN_CAPACITY, this.array.length / 2)];  // insertAll() may leave any length
+            System.arraycopy(this.array, 0, shrunk, 0, this.size + 1);  // Only the used slots, slot 0 included
+            this.array = shrunk;
+        }
+    }
+
     // Turn the binary heap into a max-min heap
     private void buildHeap() {
-        for(int i = this.size / 2; i > 0; i--) {
+        if(this.positions != null) {
+            for(int i = 1; i <= this.size; i++) {
+                this.positions[this.array[i]] = i;
+            }
+        }
+        for(int i = parent(this.size); i > 0; i--) {  // From the parent of the last item
             percolateDown(i);
         }
     }
 
+    //  Return whether the first song should be placed above the second one. Items with the same key are ordered by ID,
+    // the lower ID first in a max heap and last in a min heap, so the order in which they leave the heap does not depend
+    // on the arity or on the order they were inserted in
+    private boolean isAbove(int song1, int song2) {
+        long key1 = this.keys[song1] ^ this.order;
+        long key2 = this.keys[song2] ^ this.order;
+        return key1 > key2 || (key1 == key2 && (song1 < song2) == (this.order == 0));
+    }
+
+    // Put an item into a slot and keep note of its position
+    private void place(int hole, int item) {
+        this.array[hole] = item;
+        if(this.positions != null) {
+            this.positions[item] = hole;
+        }
+    }
+
+    // Slot of the parent of a slot, 0 for the root
+    private int parent(int slot) {
+        return (slot + this.arity - 2) / this.arity;
+    }
+
+    // Move an item up towards the root until its parent is placed correctly, return its final slot
+    private int percolateUp(int hole) {
+        int tmp = this.array[hole];
+
+        while(hole > 1) {
+            int parent = parent(hole);
+            if(!isAbove(tmp, this.array[parent])) {
+                break;
+            }
+            place(hole, this.array[parent]);
+            hole = parent;
+        }
+
+        place(hole, tmp);
+        return hole;
+    }
+
     // Move an item to its correct position
     private void percolateDown(int hole) {
-        Song tmp = this.array.get(hole);
+        int tmp = this.array[hole];
         int child;
 
         // While current hole position has a child
-        while(hole * 2 <= this.size) {
-            child = hole * 2;
-
-            if(this.isMaxHeap) {  // Max heap case
-                // If right child is greater than the left child or has a lexicographical advantage, move there
-                if(child != this.size && this.array.get(child + 1).compare(this.array.get(child), this.sortBy) > 0) {
-                    child++;
-                }
-                if(this.array.get(child).compare(tmp, this.sortBy) > 0) {
-                    this.array.set(hole, this.array.get(child));
-                }
-                else {
-                    break;
+        while((child = this.arity * (hole - 1) + 2) <= this.size) {
+            // Pick the child that should be above its siblings (higher score for max heap, lower for min heap, or a lexicographical advantage)
+            int lastChild = Math.min(child + this.arity - 1, this.size);
+            for(int sibling = child + 1; sibling <= lastChild; sibling++) {
+                if(isAbove(this.array[sibling], this.array[child])) {
+                    child = sibling;
                 }
             }
-            else {  // Min heap case
-                // If right child is less than the left child
-                if(child != this.size && this.array.get(child + 1).compare(this.array.get(child), this.sortBy) < 0) {
-                    child++;
-                }
-                if(this.array.get(child).compare(tmp, this.sortBy) < 0) {
-                    this.array.set(hole, this.array.get(child));
-                }
-                else {
-                    break;
-                }
+            if(isAbove(this.array[child], tmp)) {
+                place(hole, this.array[child]);
+            }
+            else {
+                break;
             }
 
             hole = child;
         }
 
-        this.array.set(hole, tmp);
+        place(hole, tmp);
     }
 }
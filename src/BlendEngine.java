@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+//  Hosts the Epic Blends of many tenants over one shared catalog. The SongStore is loaded once and only read, each tenant
+// only owns its limits, its Membership and its EpicBlend, and events are routed to a tenant by its ID. Run with:
+// java BlendEngine <songs file> <event file>...
+// Each event file is one tenant with the ID of its position among the arguments starting from 1. The events of all
+// tenants are interleaved one by one and the output of each tenant is written to <event file>.out
+public class BlendEngine {
+    private final SongStore songs;  // Catalog shared by every tenant
+    private final IntIntHashMap slotOfTenant;  // Index of each tenant inside tenants
+    private Tenant[] tenants;
+    private int tenantCount;
+
+    // Blend of a single tenant, which updates the Membership of the tenant itself
+    private static final class Tenant {
+        private final int tenantID;
+        private final EpicBlend epicBlend;
+
+        private Tenant(int tenantID, EpicBlend epicBlend) {
+            this.tenantID = tenantID;
+            this.epicBlend = epicBlend;
+        }
+    }
+
+    BlendEngine(SongStore songs) {
+        this.songs = songs;
+        this.slotOfTenant = new IntIntHashMap();
+        this.tenants = new Tenant[8];
+        this.tenantCount = 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: BlendEngine <songs file> <event file>...");
+            System.exit(1);
+        }
+        SongStore songStore;
+        try(InputReader input = new InputReader(Path.of(args[0]))) {
+            songStore = BlendInput.loadSongs(input);
+        }
+
+        int tenantCount = args.length - 1;
+        BlendEngine engine = new BlendEngine(songStore);
+        InputReader[] inputs = new InputReader[tenantCount];
+        OutputSink[] outputs = new OutputSink[tenantCount];
+        int[] remainingEvents = new int[tenantCount];
+        try {
+            for(int i = 0; i < tenantCount; i++) {
+                inputs[i] = new InputReader(Path.of(args[i + 1]));
+                outputs[i] = OutputSink.toFile(Path.of(args[i + 1] + ".out"), false);
+                engine.addTenant(i + 1, BlendInput.load(songStore, inputs[i]));
+                remainingEvents[i] = inputs[i].nextInt();
+            }
+
+            // One event of each tenant in turn, until every tenant is done
+            boolean pending = true;
+            while(pending) {
+                pending = false;
+                for(int i = 0; i < tenantCount; i++) {
+                    if(remainingEvents[i] == 0) {
+                        continue;
+                    }
+                    remainingEvents[i]--;
+                    pending = true;
+
+                    EventType eventType = EventType.of(inputs[i].nextTokenCode());
+                    switch (eventType) {
+                        case REM -> engine.remove(i + 1, inputs[i].nextInt(), inputs[i].nextInt(), outputs[i]);
+                        case ADD -> engine.add(i + 1, inputs[i].nextInt(), inputs[i].nextInt(), outputs[i]);
+                        case ASK -> engine.ask(i + 1, outputs[i]);
+                    }
+                }
+            }
+        }
+        finally {
+            for(int i = 0; i < tenantCount; i++) {
+                if(inputs[i] != null) {
+                    inputs[i].close();
+                }
+                if(outputs[i] != null) {
+                    outputs[i].close();
+                }
+            }
+        }
+    }
+
+    public int tenantCount() {
+        return this.tenantCount;
+    }
+
+    //  Create the blend of a new tenant from its limits and playlists, tenant IDs start from 1. The input must have been
+    // loaded over the catalog of this engine
+    public void addTenant(int tenantID, BlendInput blendInput) {
+        if(tenantID <= 0) {
+            throw new IllegalArgumentException("Tenant IDs start from 1, got " + tenantID);
+        }
+        if(blendInput.songs != this.songs) {
+            throw new IllegalArgumentException("Tenant " + tenantID + " was loaded over another catalog");
+        }
+        if(this.slotOfTenant.containsKey(tenantID)) {
+            throw new IllegalArgumentException("Tenant " + tenantID + " already exists");
+        }
+
+        EpicBlend epicBlend = new EpicBlend(blendInput.limits, this.songs, blendInput.membership);
+        epicBlend.createEpicBlend(blendInput.initialEntries);
+
+        if(this.tenantCount == this.tenants.length) {
+            this.tenants = Arrays.copyOf(this.tenants, this.tenantCount * 2);
+        }
+        this.slotOfTenant.put(tenantID, this.tenantCount);
+        this.tenants[this.tenantCount++] = new Tenant(tenantID, epicBlend);
+    }
+
+    // Drop the blend of a tenant, return false if there is no such tenant
+    public boolean removeTenant(int tenantID) {
+        int slot = this.slotOfTenant.remove(tenantID, -1);
+        if(slot == -1) {
+            return false;
+        }
+
+        Tenant lastTenant = this.tenants[--this.tenantCount];
+        this.tenants[this.tenantCount] = null;
+        if(slot != this.tenantCount) {  // Fill the slot of the removed tenant with the last tenant
+            this.tenants[slot] = lastTenant;
+            this.slotOfTenant.put(lastTenant.tenantID, slot);
+        }
+        return true;
+    }
+
+    // Add a song to a playlist of the tenant and print the changes of its blend
+    public void add(int tenantID, int songID, int playlistID, OutputSink output) throws IOException {
+        tenant(tenantID).epicBlend.add(songID, playlistID, output);
+    }
+
+    // Remove a song from a playlist of the tenant and print the changes of its blend
+    public void remove(int tenantID, int songID, int playlistID, OutputSink output) throws IOException {
+        tenant(tenantID).epicBlend.remove(songID, playlistID, output);
+    }
+
+    // Print the blend of the tenant
+    public void ask(int tenantID, OutputSink output) throws IOException {
+        tenant(tenantID).epicBlend.ask(output);
+    }
+
+    private Tenant tenant(int tenantID) {
+        int slot = this.slotOfTenant.get(tenantID, -1);
+        if(slot == -1) {
+            throw new IllegalArgumentException("Unknown tenant " + tenantID);
+        }
+        return this.tenants[slot];
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+// Catalog and playlists given in the input files, everything needed to create the Epic Blend before processing events
+public class BlendInput {
+    public final SongStore songs;
+    public final int[] limits;  // Category limit followed by the limit of the Epic Blend for each category in Category order
+    public final Membership membership;  // Playlists given in the event file
+    public final int[] initialEntries;  // Membership entries of the songs in the playlists, followed by zeros
+
+    BlendInput(SongStore songs, int[] limits, Membership membership, int[] initialEntries) {
+        this.songs = songs;
+        this.limits = limits;
+        this.membership = membership;
+        this.initialEntries = initialEntries;
+    }
+
+    // Read every song from the songs file: the song count, then "songID name playCount" and a score per category for each song
+    public static SongStore loadSongs(InputReader input) throws IOException {
+        SongStore songs = new SongStore(input.nextInt());
+        int[] songInfo = new int[2 + Category.COUNT];
+
+        while(input.hasNext()) {
+            songInfo[0] = input.nextInt();
+            String songName = input.nextToken();
+            for(int i = 1; i < songInfo.length; i++) {
+                songInfo[i] = input.nextInt();
+            }
+            songs.add(songInfo, songName);
+        }
+        songs.buildSortKeys();
+
+        return songs;
+    }
+
+    //  Read the limits and the playlists from the start of the event file and assign songs to their playlists. The input
+    // is left at the event count
+    public static BlendInput load(SongStore songs, InputReader input) throws IOException {
+        int[] limits = new int[1 + Category.COUNT];
+        for(int i = 0; i < limits.length; i++) {
+            limits[i] = input.nextInt();
+        }
+
+        int playlistCount = input.nextInt();
+        Membership membership = new Membership(playlistCount);
+
+        int[] initialEntries = new int[16];
+        int index = 0;
+
+        for(int i = 0; i < playlistCount; i++) {
+            int playListID = input.nextInt();
+            int songCount = input.nextInt();  // Song count inside the current play list
+
+            for(int j = 0; j < songCount; j++) {
+                int songID = input.nextInt();
+                if(index + 1 >= initialEntries.length) {  // Keep a zero after the last entry
+                    initialEntries = Arrays.copyOf(initialEntries, initialEntries.length * 2);
+                }
+                initialEntries[index++] = membership.add(songID, playListID);  // Specify which playlist this song belongs to
+            }
+        }
+
+        return new BlendInput(songs, limits, membership, initialEntries);
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+//  Songs of the Epic Blend in descending order of play counts, kept up to date as songs enter and leave the categories.
+// Each song counts the categories it is chosen in and is listed while that count is positive. The sorted list is only
+// repaired when it is printed: songs that entered the blend since then are sorted and merged in, songs that left are
+// dropped, so ASK costs O(k) plus sorting the newcomers and the leavers. An unchanged blend reuses the line printed last time.
+//  The state of each song is kept in a map instead of arrays over the catalog, so a blend costs memory in proportion to
+// its own songs even when many blends share a large catalog
+public class BlendOrder {
+    private static final int LISTED = 1;  // Song is inside the sorted list or waiting among the newcomers
+    private static final int ONE_CATEGORY = 2;  // Categories a song is chosen in are counted above the LISTED bit
+
+    private final SongStore songs;
+    //  State of each song that is in the blend or still listed: the number of categories it is chosen in times
+    // ONE_CATEGORY, plus LISTED. Songs that are neither are not in the map
+    private final IntIntHashMap songState;
+
+    private long[] sorted;  // Play count keys in ascending order, may still hold keys of songs that left the blend
+    private int sortedCount;
+    private long[] spare;  // Array the next repair merges into, swapped with the sorted list afterwards
+    private long[] newcomers;  // Play count keys of songs that entered the blend since the last repair, unsorted
+    private int newcomerCount;
+    //  Play count keys of songs whose category count dropped to 0 since the last repair, a song may be noted more than
+    // once and may have entered the blend again since
+    private long[] leavers;
+    private int leaverCount;
+    private long[] sortScratch;  // Buffers of KeySort, kept so that sorting newcomers and leavers allocates nothing
+    private final int[] sortCounts;
+
+    private byte[] line;  // Last printed line
+    private int lineLength;
+    private boolean dirty;  // Whether the set of songs in the blend changed since the line was printed
+    private long version;  // Incremented whenever the set of songs in the blend changes
+
+    BlendOrder(SongStore songs) {
+        this.songs = songs;
+        this.songState = new IntIntHashMap();
+        this.sorted = new long[16];
+        this.sortedCount = 0;
+        this.spare = new long[16];
+        this.newcomers = new long[16];
+        this.newcomerCount = 0;
+        this.leavers = new long[16];
+        this.leaverCount = 0;
+        this.sortScratch = new long[16];
+        this.sortCounts = new int[KeySort.DIGIT_COUNT];
+        this.line = new byte[16];
+        this.lineLength = 0;
+        this.dirty = false;
+    }
+
+    // A song is chosen in one more category
+    public void add(int song) {
+        int state = this.songState.addTo(song, ONE_CATEGORY) - ONE_CATEGORY;
+        if(state < ONE_CATEGORY) {
+            this.dirty = true;
+            this.version++;
+            if((state & LISTED) == 0) {
+                this.songState.addTo(song, LISTED);
+                if(this.newcomerCount == this.newcomers.length) {
+                    this.newcomers = Arrays.copyOf(this.newcomers, this.newcomerCount * 2);
+                }
+                this.newcomers[this.newcomerCount++] = this.songs.playCountKey[song];
+            }
+        }
+    }
+
+    // A song is not chosen in one of its categories anymore
+    public void remove(int song) {
+        if(this.songState.addTo(song, -ONE_CATEGORY) < ONE_CATEGORY) {
+            this.dirty = true;  // Its key stays in the lists until the next repair
+            this.version++;
+            if(this.leaverCount == this.leavers.length) {
+                this.leavers = Arrays.copyOf(this.leavers, this.leaverCount * 2);
+            }
+            this.leavers[this.leaverCount++] = this.songs.playCountKey[song];
+        }
+    }
+
+    // Sort the first length keys of the array, growing the scratch buffer if it is too short
+    private void sort(long[] keys, int length) {
+        if(this.sortScratch.length < length) {
+            this.sortScratch = new long[Math.max(length, this.sortScratch.length * 2)];
+        }
+        KeySort.sort(keys, length, this.sortScratch, this.sortCounts);
+    }
+
+    // Merge the newcomers into the sorted list and drop the songs that left the blend
+    private void repair() {
+        sort(this.newcomers, this.newcomerCount);
+
+        // Keep the leavers that are still out of the blend, once each, and forget their state
+        int droppedCount = 0;
+        for(int i = 0; i < this.leaverCount; i++) {
+            int song = this.songs.songOfKey(this.leavers[i]);
+            if(this.songState.get(song, 0) == LISTED) {
+                this.songState.remove(song, 0);
+                this.leavers[droppedCount++] = this.leavers[i];
+            }
+        }
+        sort(this.leavers, droppedCount);
+        this.leaverCount = 0;
+
+        if(this.spare.length < this.sortedCount + this.newcomerCount) {
+            this.spare = new long[(this.sortedCount + this.newcomerCount) * 2];
+        }
+        long[] merged = this.spare;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        int d = 0;
+        while(i < this.sortedCount || j < this.newcomerCount) {
+            long key;
+            if(j == this.newcomerCount || (i < this.sortedCount && this.sorted[i] < this.newcomers[j])) {
+                key = this.sorted[i++];
+            }
+            else {
+                key = this.newcomers[j++];
+            }
+
+            while(d < droppedCount && this.leavers[d] < key) {
+                d++;
+            }
+            if(d < droppedCount && this.leavers[d] == key) {  // Song left the blend
+                d++;
+            }
+            else {
+                merged[count++] = key;
+            }
+        }
+
+        this.spare = this.sorted;
+        this.sorted = merged;
+        this.sortedCount = count;
+        this.newcomerCount = 0;
+    }
+
+    // Number of changes to the set of songs in the blend so far, equal versions mean the same blend
+    public long version() {
+        return this.version;
+    }
+
+    // Print the songs of the blend in descending order of play counts, nothing is printed for an empty blend
+    public void write(OutputSink output) throws IOException {
+        refresh();
+        output.write(this.line, this.lineLength);
+    }
+
+    // Copy of the line write() prints, which stays valid while the blend keeps changing
+    public byte[] copyLine() {
+        refresh();
+        return Arrays.copyOf(this.line, this.lineLength);
+    }
+
+    private void refresh() {
+        if(this.dirty) {
+            repair();
+            serialize();
+            this.dirty = false;
+        }
+    }
+
+    private void serialize() {
+        int maxLength = this.sortedCount * (OutputSink.MAX_INT_LENGTH + 1);
+        if(this.line.length < maxLength) {
+            this.line = new byte[maxLength];
+        }
+
+        int length = 0;
+        for(int i = this.sortedCount - 1; i >= 0; i--) {
+            length = OutputSink.encodeInt(this.songs.songOfKey(this.sorted[i]), this.line, length);
+            this.line[length++] = (byte) (i == 0 ? '\n' : ' ');
+        }
+        this.lineLength = length;
+    }
+}
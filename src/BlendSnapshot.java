@@ -0,0 +1,25 @@
+import java.io.IOException;
+
+//  Immutable view of the Epic Blend after a given number of events, as published by ConcurrentEpicBlend. Any number of
+// threads can print it while the blend keeps changing
+public final class BlendSnapshot {
+    public final long version;  // Number of ADD and REM events applied before this snapshot
+    public final long blendVersion;  // Version of the blend order the line was taken from, see BlendOrder.version
+    private final byte[] line;  // ASK output of the blend, never modified after construction
+
+    BlendSnapshot(long version, long blendVersion, byte[] line) {
+        this.version = version;
+        this.blendVersion = blendVersion;
+        this.line = line;
+    }
+
+    // Snapshot of the same blend after more events, shares the line
+    BlendSnapshot next(long version) {
+        return new BlendSnapshot(version, this.blendVersion, this.line);
+    }
+
+    // Print the blend the way EpicBlend.ask does
+    public void write(OutputSink output) throws IOException {
+        output.write(this.line, this.line.length);
+    }
+}
@@ -0,0 +1,15 @@
+//  Vibe categories of the Epic Blend. Index of a category is its position inside per category arrays, songs give one
+// score per category in this order
+public enum Category {
+    HEARTACHE(0),
+    ROAD_TRIP(1),
+    BLISSFUL(2);
+
+    public static final int COUNT = values().length;
+
+    public final int index;
+
+    Category(int index) {
+        this.index = index;
+    }
+}
@@ -0,0 +1,431 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+//  Songs of a single vibe category: the chosen songs of the Epic Blend, the songs waiting for a slot and the amount of
+// songs each playlist offers. Every category runs through the same code, EpicBlend only tells each of them which songs
+// were added or removed and collects the changes. Heaps hold the (song, playlist) entries of the Membership, so a song
+// in several playlists is offered by each of them.
+//  A song takes at most one slot of a category however many playlists offer it. Only one of its entries is chosen and
+// counts against the category limit of its playlist, the other entries wait in the general heap. Once the chosen entry
+// leaves, the next refill may choose another entry of the song like any other waiting entry
+public class CategoryState {
+    public final Category category;
+    private final long[] songKeys;  // Sort keys of the catalog songs in this category indexed by song ID
+    private final Membership membership;  // Song and playlist of each entry
+    //  Sort key of the song of each entry indexed by entry ID, so heaps compare entries without looking up their songs.
+    // The arrays indexed by entry ID grow with the entry capacity of the membership
+    private long[] entryKeys;
+    private int[] generalPositions;
+    private int[] chosenPositions;
+    private int[] playlistPositions;
+    private final int categoryLimit;  // Max num of songs a playlist can offer to this category
+    private final int blendLimit;  // Max num of songs of this category Epic Blend can contain
+    private final int heapArity;  // Children of each slot of every heap, see BinaryHeap
+
+    public final BinaryHeap generalHeap;  // Max heap of the entries that are not chosen for the Epic Blend
+    private final BinaryHeap chosenHeap;  // Min heap of the entries chosen for this category of the Epic Blend
+    //  Min heaps of the chosen entries of each playlist. Aim is to lower add() operation time by accessing an entry with a
+    // specific playlistID chosen for the Epic Blend. They are kept exact: an entry leaves the heap of its playlist in the
+    // same step that takes it out of the chosen heap, so the worst chosen entry of a playlist is always its peek() and
+    // the size of its heap is the amount of songs the playlist offers to this category.
+    //  Most playlists never offer a song, so a heap only exists while its playlist has chosen entries. Heaps are packed
+    // into the first playlistHeapCount slots, slotOfPlaylist maps a playlist ID to its slot and a released slot is
+    // filled with the last heap
+    private BinaryHeap[] playlistHeaps;
+    private int[] playlistOfSlot;  // Playlist ID of each heap
+    private int playlistHeapCount;
+    private final IntIntHashMap slotOfPlaylist;
+    private final IntIntHashMap chosenEntryOfSong;  // Chosen entry of each song chosen for this category
+
+    // Entries of the last change of this category, 0 when nothing changed
+    private int addedEntry;
+    private int removedEntry;
+
+    private int[] poppedEntries;  // Entries remove() pops from the general heap and puts back, reused by every call
+
+    CategoryState(Category category, SongStore songs, Membership membership, int categoryLimit, int blendLimit, int heapArity) {
+        this.category = category;
+        this.songKeys = songs.sortKeys(category);
+        this.membership = membership;
+        this.categoryLimit = categoryLimit;
+        this.blendLimit = blendLimit;
+        this.heapArity = heapArity;
+
+        //  Heaps are indexed by entry ID so that removed entries are taken out of them immediately. An entry belongs to a
+        // single playlist, hence the playlist heaps can share a single positions array
+        int entryCapacity = membership.entryCapacity();
+        this.entryKeys = new long[entryCapacity];
+        this.generalPositions = new int[entryCapacity];
+        this.chosenPositions = new int[entryCapacity];
+        this.playlistPositions = new int[entryCapacity];
+        this.generalHeap = new BinaryHeap(this.entryKeys, true, this.generalPositions, heapArity);
+        this.chosenHeap = new BinaryHeap(this.entryKeys, false, this.chosenPositions, heapArity);
+
+        this.playlistHeaps = new BinaryHeap[8];
+        this.playlistOfSlot = new int[8];
+        this.playlistHeapCount = 0;
+        this.slotOfPlaylist = new IntIntHashMap();
+        this.chosenEntryOfSong = new IntIntHashMap();
+        this.poppedEntries = new int[8];
+    }
+
+    // Amount of songs a playlist offers to this category
+    private int offeredCount(int playlistID) {
+        int slot = this.slotOfPlaylist.get(playlistID, -1);
+        return slot == -1 ? 0 : this.playlistHeaps[slot].size();
+    }
+
+    // Worst chosen entry of a playlist, 0 if the playlist has none
+    private int worstOfPlaylist(int playlistID) {
+        int slot = this.slotOfPlaylist.get(playlistID, -1);
+        return slot == -1 ? 0 : this.playlistHeaps[slot].peek();
+    }
+
+    // Heap of the chosen entries of a playlist, created empty if the playlist has none
+    private BinaryHeap playlistHeap(int playlistID) {
+        int slot = this.slotOfPlaylist.get(playlistID, -1);
+        if(slot != -1) {
+            return this.playlistHeaps[slot];
+        }
+
+        if(this.playlistHeapCount == this.playlistHeaps.length) {
+            this.playlistHeaps = Arrays.copyOf(this.playlistHeaps, this.playlistHeapCount * 2);
+            this.playlistOfSlot = Arrays.copyOf(this.playlistOfSlot, this.playlistHeapCount * 2);
+        }
+        BinaryHeap playlistHeap = new BinaryHeap(this.entryKeys, false, this.playlistPositions, this.heapArity);
+        this.slotOfPlaylist.put(playlistID, this.playlistHeapCount);
+        this.playlistOfSlot[this.playlistHeapCount] = playlistID;
+        this.playlistHeaps[this.playlistHeapCount++] = playlistHeap;
+        return playlistHeap;
+    }
+
+    // Take a chosen entry out of the heap of its playlist, dropping the heap once the playlist has no chosen entries left
+    private void removeFromPlaylist(int entry) {
+        int playlistID = this.membership.playlistOf(entry);
+        int slot = this.slotOfPlaylist.get(playlistID, -1);
+        this.playlistHeaps[slot].remove(entry);
+        if(!this.playlistHeaps[slot].isEmpty()) {
+            return;
+        }
+
+        this.slotOfPlaylist.remove(playlistID, -1);
+        int lastSlot = --this.playlistHeapCount;
+        if(slot != lastSlot) {  // Fill the slot of the dropped heap with the last heap
+            this.playlistHeaps[slot] = this.playlistHeaps[lastSlot];
+            this.playlistOfSlot[slot] = this.playlistOfSlot[lastSlot];
+            this.slotOfPlaylist.put(this.playlistOfSlot[slot], slot);
+        }
+        this.playlistHeaps[lastSlot] = null;
+    }
+
+    // Whether another entry of the song of this entry is chosen for this category
+    private boolean isSongChosen(int entry) {
+        return this.chosenEntryOfSong.containsKey(this.membership.songOf(entry));
+    }
+
+    // Put an entry into the chosen heap and the heap of its playlist
+    private void choose(int entry) {
+        this.chosenHeap.insert(entry);
+        playlistHeap(this.membership.playlistOf(entry)).insert(entry);
+        this.chosenEntryOfSong.put(this.membership.songOf(entry), entry);
+    }
+
+    // Take an entry out of the chosen heap and the heap of its playlist
+    private void unchoose(int entry) {
+        this.chosenHeap.remove(entry);
+        removeFromPlaylist(entry);
+        this.chosenEntryOfSong.remove(this.membership.songOf(entry), 0);
+    }
+
+    //  Note the sort key of an entry before it enters the heaps, growing the arrays indexed by entry ID if the membership
+    // has outgrown them
+    private void track(int entry) {
+        int entryCapacity = this.membership.entryCapacity();
+        if(this.entryKeys.length < entryCapacity) {
+            this.entryKeys = Arrays.copyOf(this.entryKeys, entryCapacity);
+            this.generalPositions = Arrays.copyOf(this.generalPositions, entryCapacity);
+            this.chosenPositions = Arrays.copyOf(this.chosenPositions, entryCapacity);
+            this.playlistPositions = Arrays.copyOf(this.playlistPositions, entryCapacity);
+            this.generalHeap.resize(this.entryKeys, this.generalPositions);
+            this.chosenHeap.resize(this.entryKeys, this.chosenPositions);
+            for(int i=0; i<this.playlistHeapCount; i++) {
+                this.playlistHeaps[i].resize(this.entryKeys, this.playlistPositions);
+            }
+        }
+        this.entryKeys[entry] = this.songKeys[this.membership.songOf(entry)];
+    }
+
+    //  Compare two entries by their songs, positive if the first song has a higher score or the same score but a
+    // lexicographically smaller name. Entries of the same song are ordered like the heaps order them, the lower entry ID
+    // first, so which of them is chosen does not depend on the shape of the heaps
+    private int compare(int entry1, int entry2) {
+        int comparison = Long.compare(this.entryKeys[entry1], this.entryKeys[entry2]);
+        return comparison != 0 ? comparison : Integer.compare(entry2, entry1);
+    }
+
+    //  Report the sizes and capacities of the heaps of this category as gauges named after the prefix, the playlist heaps
+    // are counted and summed up
+    public void registerMetrics(MetricsRegistry registry, String prefix) {
+        registry.gauge(prefix + "general.size", this.generalHeap::size);
+        registry.gauge(prefix + "general.capacity", this.generalHeap::capacity);
+        registry.gauge(prefix + "chosen.size", this.chosenHeap::size);
+        registry.gauge(prefix + "chosen.capacity", this.chosenHeap::capacity);
+        registry.gauge(prefix + "playlist.count", () -> this.playlistHeapCount);
+        registry.gauge(prefix + "playlist.size", () -> sumPlaylistHeaps(BinaryHeap::size));
+        registry.gauge(prefix + "playlist.capacity", () -> sumPlaylistHeaps(BinaryHeap::capacity));
+        registry.gauge(prefix + "entryIndex.capacity", () -> this.entryKeys.length);
+    }
+
+    //  Sum a value over the playlist heaps for a reporter thread. The event thread may grow the slab or drop heaps
+    // meanwhile, so the slab is read once and emptied slots are skipped, the sum may be a few events behind
+    private long sumPlaylistHeaps(ToLongFunction<BinaryHeap> value) {
+        BinaryHeap[] playlistHeaps = this.playlistHeaps;
+        int count = Math.min(this.playlistHeapCount, playlistHeaps.length);
+        long sum = 0;
+        for(int i=0; i<count; i++) {
+            BinaryHeap playlistHeap = playlistHeaps[i];
+            if(playlistHeap != null) {
+                sum += value.applyAsLong(playlistHeap);
+            }
+        }
+        return sum;
+    }
+
+    // Number of songs chosen for this category
+    public int size() {
+        return this.chosenHeap.size();
+    }
+
+    // Entry at the given slot of the chosen entries, slots are numbered from 1 to size
+    public int get(int slot) {
+        return this.chosenHeap.get(slot);
+    }
+
+    public int addedEntry() {
+        return this.addedEntry;
+    }
+
+    public int removedEntry() {
+        return this.removedEntry;
+    }
+
+    // Forget the last change after it is printed
+    public void clearChanges() {
+        this.addedEntry = 0;
+        this.removedEntry = 0;
+    }
+
+    //  Choose the best entries among the initial entries (followed by zeros) that fit the limits, one time use only. All
+    // entries are heapified at once and the best ones popped until the category is full. Chosen entries are collected
+    // first and inserted into the min heaps in ascending order, so each insert stays at the bottom in O(1)
+    public void create(int[] initialEntries) {
+        int entryCount = 0;
+        while(entryCount < initialEntries.length && initialEntries[entryCount] != 0) {
+            track(initialEntries[entryCount]);
+            entryCount++;
+        }
+        this.generalHeap.insertAll(initialEntries, entryCount);
+
+        int[] chosenEntries = new int[Math.min(this.blendLimit, entryCount)];
+        int chosenCount = 0;
+        IntIntHashMap offeredCount = new IntIntHashMap();  // The playlist heaps are only filled at the end
+        int[] bypassedEntries = new int[8];
+        int bypassedCount = 0;
+        while(this.blendLimit > chosenCount && !this.generalHeap.isEmpty()) {
+            int newEntry = this.generalHeap.pop();
+            int playlistID = this.membership.playlistOf(newEntry);  // Playlist to which the new song belongs to
+            // If the playlist to which the new song belongs does not exceed the offered song count limit for this category
+            int playlistOffers = offeredCount.get(playlistID, 0);
+            if(playlistOffers < this.categoryLimit && !isSongChosen(newEntry)) {
+                chosenEntries[chosenCount++] = newEntry;
+                offeredCount.put(playlistID, playlistOffers + 1);
+                this.chosenEntryOfSong.put(this.membership.songOf(newEntry), newEntry);  // choose() puts it again
+            }
+            // The playlist this new song belongs to cannot offer more songs for this category, or the song is chosen
+            // through another playlist, bypass it
+            else {
+                if(bypassedCount == bypassedEntries.length) {
+                    bypassedEntries = Arrays.copyOf(bypassedEntries, bypassedCount * 2);
+                }
+                bypassedEntries[bypassedCount++] = newEntry;
+            }
+        }
+        for(int i = 0; i < bypassedCount; i++) {
+            this.generalHeap.insert(bypassedEntries[i]);
+        }
+
+        for(int i = chosenCount - 1; i >= 0; i--) {
+            choose(chosenEntries[i]);
+        }
+    }
+
+    // Write the heaps to a snapshot, see StateSnapshot. Only the playlists with chosen entries are written, each by its ID
+    public void write(SnapshotWriter output) throws IOException {
+        this.generalHeap.write(output);
+        this.chosenHeap.write(output);
+        output.writeInt(this.playlistHeapCount);
+        for(int i=0; i<this.playlistHeapCount; i++) {
+            output.writeInt(this.playlistOfSlot[i]);
+            this.playlistHeaps[i].write(output);
+        }
+    }
+
+    // Restore the state written by write() instead of calling create()
+    public void read(SnapshotReader input) throws IOException {
+        for(int entry=1; entry<this.membership.entryCapacity(); entry++) {
+            if(this.membership.songOf(entry) != 0) {
+                track(entry);
+            }
+        }
+        this.generalHeap.read(input);
+        this.chosenHeap.read(input);
+        int playlistHeapCount = input.readInt();
+        for(int i=0; i<playlistHeapCount; i++) {
+            playlistHeap(input.readInt()).read(input);
+        }
+        for(int i=1; i<=this.chosenHeap.size(); i++) {
+            int entry = this.chosenHeap.get(i);
+            this.chosenEntryOfSong.put(this.membership.songOf(entry), entry);
+        }
+    }
+
+    // Take the entry of a song removed from its playlist out of this category
+    public void remove(int deletedEntry) {
+        if(!this.chosenHeap.contains(deletedEntry)) {  // Song to be removed is not in Epic Blend
+            this.generalHeap.remove(deletedEntry);  // Take the song out of the general max heap
+            return;
+        }
+
+        // Removed song is included in this category of Epic Blend actively, remove it
+        unchoose(deletedEntry);
+        this.removedEntry = deletedEntry;
+
+        // Choose another song in its place if there are songs waiting in the general heap, until this category of Epic Blend is full
+        int poppedCount = 0;
+        while(this.chosenHeap.size() < this.blendLimit && !this.generalHeap.isEmpty()) {
+            int newEntry = this.generalHeap.pop();  // Remove new song from the general heap, it will be like a new song added by the user
+
+            // Category limit has not been exceeded and the song is not chosen through another playlist
+            if(offeredCount(this.membership.playlistOf(newEntry)) < this.categoryLimit && !isSongChosen(newEntry)) {
+                emptySlotsWithinLimit(newEntry);
+                break;
+            }
+            else {
+                if(poppedCount == this.poppedEntries.length) {
+                    this.poppedEntries = Arrays.copyOf(this.poppedEntries, poppedCount * 2);
+                }
+                this.poppedEntries[poppedCount++] = newEntry;
+            }
+        }
+
+        // Put the popped songs back into the general heap
+        for(int i = 0; i < poppedCount; i++) {
+            this.generalHeap.insert(this.poppedEntries[i]);
+        }
+
+        // The song took its slot back through another of its playlists, for this category it never left
+        if(this.addedEntry != 0 && this.membership.songOf(this.addedEntry) == this.membership.songOf(deletedEntry)) {
+            this.addedEntry = 0;
+            this.removedEntry = 0;
+        }
+    }
+
+    // Offer the entry of a song added to one of the playlists to this category
+    public void add(int newEntry) {
+        track(newEntry);
+        int newPlaylistID = this.membership.playlistOf(newEntry);
+
+        if(isSongChosen(newEntry)) {  // The song already has a slot of this category through another playlist
+            this.generalHeap.insert(newEntry);
+        }
+        else if(this.chosenHeap.size() < this.blendLimit) {  // There are empty slots in the Epic Blend
+            if(offeredCount(newPlaylistID) < this.categoryLimit) {  // Category limit has not been exceeded
+                emptySlotsWithinLimit(newEntry);
+            }
+            else {  // Category limit is full but new song may replace another song from the same playlist
+                emptySlotsAtLimit(worstOfPlaylist(newPlaylistID), newEntry);
+            }
+        }
+        else if(this.chosenHeap.isEmpty()) {  // Blend limit is 0, this category never chooses a song
+            this.generalHeap.insert(newEntry);
+        }
+        else { // Chosen heap is full, only replacements can be done
+            int oldEntry = this.chosenHeap.peek();  // Song with the minimum score that is in Epic Blend
+            // New song has a chance to enter Epic Blend either because of having a higher score or the same score but lexicographically smaller song name
+            if(compare(newEntry, oldEntry) > 0) {
+                if(newPlaylistID == this.membership.playlistOf(oldEntry)) {  // Both are from the same playlist
+                    noEmptySlotsSamePlaylist(oldEntry, newEntry);
+                }
+                else {  // The new and old songs are from different playlists, update offered count of each playlist
+                    if(offeredCount(newPlaylistID) < this.categoryLimit) {  // New song's playlist does not exceed offer limit for this category
+                        noEmptySlotsDifferentPlaylistWithinLimit(oldEntry, newEntry);
+                    }
+                    else {  // New song's playlist exceeds the offer limit for this category, but it may replace another song which is in the same playlist as itself
+                        noEmptySlotsDifferentPlaylistAtLimit(worstOfPlaylist(newPlaylistID), newEntry);
+                    }
+                }
+            }
+            else {  // New song's score is not enough to make it into this category of Epic Blend
+                this.generalHeap.insert(newEntry);
+            }
+        }
+    }
+
+    // There are empty spots in the Epic Blend and category limit has not been exceeded for this song's playlist
+    private void emptySlotsWithinLimit(int newEntry) {
+        choose(newEntry);
+
+        this.addedEntry = newEntry;
+    }
+
+    //  There are empty spots in the Epic Blend however new song's playlist's offer count is at the category limit, but
+    // it may replace another song which is in the same playlist as itself
+    private boolean emptySlotsAtLimit(int oldEntry, int newEntry) {
+        return noEmptySlotsDifferentPlaylistAtLimit(oldEntry, newEntry);
+    }
+
+    //  Epic Blend is full however new song is in the same playlist as the min scored song in Epic Blend and replaces it
+    // due to higher score or lexicographically advantageous
+    private void noEmptySlotsSamePlaylist(int oldEntry, int newEntry) {
+        choose(newEntry);  // First, so the heap of the playlist is not dropped in between
+        unchoose(oldEntry);  // Remove the song with the minimum score from chosen heap
+        this.generalHeap.insert(oldEntry);
+
+        this.addedEntry = newEntry;
+        this.removedEntry = oldEntry;
+    }
+
+    // Epic Blend is full however new song is in a different playlist from the min scored song in Epic Blend and replaces it due to higher score or lexicographical advantage
+    // New song's playlist's offer count is within category limit
+    private void noEmptySlotsDifferentPlaylistWithinLimit(int oldEntry, int newEntry) {
+        unchoose(oldEntry);
+        this.generalHeap.insert(oldEntry);  // Put the popped song back into the general max heap
+        choose(newEntry);
+
+        this.addedEntry = newEntry;
+        this.removedEntry = oldEntry;
+    }
+
+    // Epic Blend is full however new song has a chance to enter Epic Blend based on its score and is in a different playlist from the min scored song in Epic Blend
+    // New song's playlist's offer count is at the category limit, but it may replace another song which is in the same playlist as itself
+    // The old entry is 0 when the playlist has no chosen song to give up, which happens when the category limit is 0
+    private boolean noEmptySlotsDifferentPlaylistAtLimit(int oldEntry, int newEntry) {
+        //  New song should replace the old song that is from the same playlist as itself as new song has higher score
+        // or lexicographically advantageous
+        if(oldEntry != 0 && compare(newEntry, oldEntry) > 0) {
+            choose(newEntry);  // First, so the heap of the playlist is not dropped in between
+            unchoose(oldEntry);  // Remove old song from the chosen Epic Blend min heap and the heap of its playlist
+            this.generalHeap.insert(oldEntry);
+
+            this.addedEntry = newEntry;
+            this.removedEntry = oldEntry;
+
+            return true;  // New song successfully inserted
+        }
+        else {  // New song cannot enter the chosen heap due to category limit
+            this.generalHeap.insert(newEntry);
+            return false;  // New song could not be inserted into the chosen heap for Epic Blend
+        }
+    }
+}
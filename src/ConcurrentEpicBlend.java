@@ -0,0 +1,53 @@
+import java.io.IOException;
+
+//  Epic Blend shared between threads. ADD and REM events are applied one at a time by whichever thread calls add() or
+// remove(), and each of them publishes a new immutable snapshot of the blend. ask() only reads the latest snapshot
+// through a volatile field, so any number of readers print the blend without locking and never wait for the writer.
+// A reader sees the blend as it was after the last completed event
+public class ConcurrentEpicBlend {
+    private final EpicBlend epicBlend;  // Only touched while holding the lock of this object
+
+    private long eventCount;  // ADD and REM events applied so far
+    private volatile BlendSnapshot snapshot;
+
+    ConcurrentEpicBlend(EpicBlend epicBlend) {
+        this.epicBlend = epicBlend;
+        this.eventCount = 0;
+        this.snapshot = new BlendSnapshot(0, epicBlend.blendVersion(), epicBlend.copyAskLine());
+    }
+
+    // Add a song to a playlist and print the changes of the blend to the output of the writer
+    public synchronized void add(int songID, int playlistID, OutputSink output) throws IOException {
+        this.epicBlend.add(songID, playlistID, output);
+        publish();
+    }
+
+    // Remove a song from its playlist and print the changes of the blend to the output of the writer
+    public synchronized void remove(int songID, int playlistID, OutputSink output) throws IOException {
+        this.epicBlend.remove(songID, playlistID, output);
+        publish();
+    }
+
+    //  Publish the blend after the event just applied. The line is only copied when the set of songs changed, otherwise
+    // the new snapshot shares the line of the previous one
+    private void publish() {
+        this.eventCount++;
+        BlendSnapshot current = this.snapshot;
+        if(current.blendVersion == this.epicBlend.blendVersion()) {
+            this.snapshot = current.next(this.eventCount);
+        }
+        else {
+            this.snapshot = new BlendSnapshot(this.eventCount, this.epicBlend.blendVersion(), this.epicBlend.copyAskLine());
+        }
+    }
+
+    // Latest published state of the blend, never blocks
+    public BlendSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    // Print the latest published blend, each reader thread has to use its own output
+    public void ask(OutputSink output) throws IOException {
+        this.snapshot.write(output);
+    }
+}
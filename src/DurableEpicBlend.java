@@ -0,0 +1,250 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+//  Epic Blend whose ADD and REM events survive a crash. Every event is appended to an EventJournal before it is applied,
+// and every checkpointEvery events the state of the blend is written to a StateSnapshot and a new journal is started.
+// The directory holds catalog.bin, the song catalog written once when the blend is created, checkpoint-<sequence>.bin,
+// the blend before the event with that sequence number, and journal-<sequence>.log, the events starting from that
+// sequence number. Recovery loads the latest checkpoint and replays only the journaled events after it. An event is on
+// disk at most one journal group or maxDelayMillis after it was applied, so a crash may lose the output of the last few
+// events but never leaves the state half updated.
+//  An event is only journaled once it is known to be valid, so replaying the journal never fails on it.
+//  A checkpoint is written on the event thread: the event that triggers it waits until every entry of the membership
+// and every heap of every category, the general heaps included, are on disk. The pause grows with the number of
+// entries in the playlists, only the catalog is left out since it never changes. enableMetrics() records each pause, a
+// larger checkpointEvery makes the pauses rarer but leaves more events to replay on recovery
+public class DurableEpicBlend implements Closeable {
+    private static final String CATALOG_FILE = "catalog.bin";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".bin";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private final Path directory;
+    public final SongStore songs;
+    public final int[] limits;
+    public final Membership membership;
+    public final EpicBlend epicBlend;
+
+    private final long checkpointEvery;  // Events between two checkpoints
+    private final int groupSize;  // Records the journal forces to disk at once
+    private final long maxDelayMillis;  // Longest time a record waits in the journal before it is forced
+
+    private LatencyHistogram checkpointLatency;  // Pause of each checkpoint, null until enableMetrics()
+
+    private EventJournal journal;
+    private long sequence;  // Sequence number of the next event
+    private long checkpointSequence;  // Sequence number of the latest checkpoint
+
+    private DurableEpicBlend(Path directory, SongStore songs, int[] limits, Membership membership, EpicBlend epicBlend,
+                             long checkpointEvery, int groupSize, long maxDelayMillis) {
+        if(checkpointEvery < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive, got " + checkpointEvery);
+        }
+        this.directory = directory;
+        this.songs = songs;
+        this.limits = limits;
+        this.membership = membership;
+        this.epicBlend = epicBlend;
+        this.checkpointEvery = checkpointEvery;
+        this.groupSize = groupSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    // Whether the directory holds a checkpoint to recover from
+    public static boolean hasCheckpoint(Path directory) throws IOException {
+        return Files.isDirectory(directory) && !list(directory, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX).isEmpty();
+    }
+
+    // Start journaling an Epic Blend created from the input files, the directory must not hold a checkpoint yet
+    public static DurableEpicBlend create(Path directory, SongStore songs, int[] limits, Membership membership, EpicBlend epicBlend,
+                                          long checkpointEvery, int groupSize, long maxDelayMillis) throws IOException {
+        if(hasCheckpoint(directory)) {
+            throw new IOException(directory + " already holds a checkpoint");
+        }
+        Files.createDirectories(directory);
+        StateSnapshot.writeCatalog(directory.resolve(CATALOG_FILE), songs);
+        DurableEpicBlend durable = new DurableEpicBlend(directory, songs, limits, membership, epicBlend, checkpointEvery, groupSize, maxDelayMillis);
+        durable.sequence = 0;
+        durable.checkpointSequence = -1;
+        durable.checkpoint();
+        return durable;
+    }
+
+    //  Restore the state of the latest checkpoint and replay the journaled events after it. A new checkpoint is taken
+    // right away, so new events never follow a journal cut short by the crash
+    public static DurableEpicBlend recover(Path directory, ForkJoinPool pool,
+                                           long checkpointEvery, int groupSize, long maxDelayMillis) throws IOException {
+        List<Long> checkpoints = list(directory, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        if(checkpoints.isEmpty()) {
+            throw new IOException(directory + " holds no checkpoint");
+        }
+        long checkpointSequence = checkpoints.get(checkpoints.size() - 1);
+        SongStore songs = StateSnapshot.readCatalog(directory.resolve(CATALOG_FILE));
+        StateSnapshot snapshot = StateSnapshot.readBlend(directory.resolve(CHECKPOINT_PREFIX + checkpointSequence + CHECKPOINT_SUFFIX), songs, pool);
+        DurableEpicBlend durable = new DurableEpicBlend(directory, snapshot.songs, snapshot.limits, snapshot.membership, snapshot.epicBlend,
+                checkpointEvery, groupSize, maxDelayMillis);
+        durable.sequence = checkpointSequence;
+        durable.checkpointSequence = checkpointSequence;
+
+        // The output of the replayed events was given before the crash
+        try(OutputSink discarded = new OutputSink(OutputStream.nullOutputStream())) {
+            for(long journalStart : list(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                if(journalStart > durable.sequence) {
+                    throw new IOException("Events " + durable.sequence + " to " + (journalStart - 1) + " are missing from the journal");
+                }
+                long next = EventJournal.replay(directory.resolve(JOURNAL_PREFIX + journalStart + JOURNAL_SUFFIX), (sequence, eventType, songID, playlistID) -> {
+                    if(sequence >= durable.sequence) {  // Older events are already in the checkpoint
+                        durable.apply(eventType, songID, playlistID, discarded);
+                        durable.sequence++;
+                    }
+                });
+                durable.sequence = Math.max(durable.sequence, next);
+            }
+        }
+
+        durable.checkpoint();
+        return durable;
+    }
+
+    //  Record how long each checkpoint holds up the event that triggers it, as the histogram named prefix followed by
+    // "checkpoint". The latencies of the blend itself are enabled on epicBlend, see EpicBlend.enableMetrics
+    public void enableMetrics(MetricsRegistry registry, String prefix) {
+        this.checkpointLatency = registry.histogram(prefix + "checkpoint");
+    }
+
+    // Sequence number of the next event
+    public long sequence() {
+        return this.sequence;
+    }
+
+    // Journal an ADD or REM event, apply it and checkpoint when due
+    public void add(int songID, int playlistID, OutputSink output) throws IOException {
+        log(EventType.ADD, songID, playlistID, output);
+    }
+
+    public void remove(int songID, int playlistID, OutputSink output) throws IOException {
+        log(EventType.REM, songID, playlistID, output);
+    }
+
+    private void log(EventType eventType, int songID, int playlistID, OutputSink output) throws IOException {
+        check(eventType, songID, playlistID);
+        this.journal.append(eventType, songID, playlistID);
+        apply(eventType, songID, playlistID, output);
+        this.sequence++;
+        if(this.sequence - this.checkpointSequence >= this.checkpointEvery) {
+            checkpoint();
+        }
+    }
+
+    //  Throw the IllegalArgumentException applying an invalid event would throw, before it is journaled. ADD needs a song
+    // of the catalog that is not in the playlist yet and REM a song that is
+    private void check(EventType eventType, int songID, int playlistID) {
+        if(playlistID < 1 || playlistID > this.membership.playlistCount()) {
+            throw new IllegalArgumentException("Unknown playlist " + playlistID);
+        }
+        if(songID < 1 || songID >= this.songs.capacity()) {
+            throw new IllegalArgumentException("Unknown song " + songID);
+        }
+        boolean inPlaylist = this.membership.entryOf(songID, playlistID) != 0;
+        if(eventType == EventType.ADD && inPlaylist) {
+            throw new IllegalArgumentException("Song " + songID + " is already in playlist " + playlistID);
+        }
+        if(eventType == EventType.REM && !inPlaylist) {
+            throw new IllegalArgumentException("Song " + songID + " is not in playlist " + playlistID);
+        }
+    }
+
+    private void apply(EventType eventType, int songID, int playlistID, OutputSink output) throws IOException {
+        if(eventType == EventType.ADD) {
+            this.epicBlend.add(songID, playlistID, output);
+        }
+        else {
+            this.epicBlend.remove(songID, playlistID, output);
+        }
+    }
+
+    //  Write the current state as the checkpoint of the next sequence number and start its journal. Older checkpoints and
+    // journals are deleted only once the new checkpoint is on disk
+    public void checkpoint() throws IOException {
+        long start = this.checkpointLatency == null ? 0 : System.nanoTime();
+        if(this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+        if(this.sequence != this.checkpointSequence) {
+            StateSnapshot.writeBlend(this.directory.resolve(CHECKPOINT_PREFIX + this.sequence + CHECKPOINT_SUFFIX), this.limits, this.membership, this.epicBlend);
+            syncDirectory();
+            this.checkpointSequence = this.sequence;
+        }
+
+        for(long checkpoint : list(this.directory, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX)) {
+            if(checkpoint < this.checkpointSequence) {
+                Files.delete(this.directory.resolve(CHECKPOINT_PREFIX + checkpoint + CHECKPOINT_SUFFIX));
+            }
+        }
+        // A journal starting at the checkpoint or before holds no event after it, the recovered ones were replayed
+        for(long journalStart : list(this.directory, JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if(journalStart <= this.checkpointSequence) {
+                Files.delete(this.directory.resolve(JOURNAL_PREFIX + journalStart + JOURNAL_SUFFIX));
+            }
+        }
+
+        this.journal = new EventJournal(this.directory.resolve(JOURNAL_PREFIX + this.sequence + JOURNAL_SUFFIX), this.sequence, this.groupSize, this.maxDelayMillis);
+        syncDirectory();
+        if(this.checkpointLatency != null) {
+            this.checkpointLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    // Wait until every event applied so far is on disk
+    public void sync() throws IOException {
+        this.journal.sync();
+    }
+
+    // Make the creation, renaming and deletion of files in the directory durable
+    private void syncDirectory() throws IOException {
+        try(FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch(IOException e) {
+            // Some platforms cannot open a directory, renames are durable there without it
+        }
+    }
+
+    // Sequence numbers of the files named prefix<sequence>suffix in the directory, in increasing order
+    private static List<Long> list(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for(Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                }
+                catch(NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    // Commit the journaled events, the state after them is recovered from the last checkpoint and the journal
+    @Override
+    public void close() throws IOException {
+        if(this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.io.IOException;
+
+//  Block of events applied to the Epic Blend at once, so reading the input and updating the blend alternate in long
+// runs instead of event by event. The events are applied in order, the output and errors are the same as applying them
+// one by one
+public class EventBatch {
+    private final EventType[] types;
+    private final int[] songIDs;
+    private final int[] playlistIDs;
+    private int size;
+
+    EventBatch(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, got " + capacity);
+        }
+        this.types = new EventType[capacity];
+        this.songIDs = new int[capacity];
+        this.playlistIDs = new int[capacity];
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isFull() {
+        return this.size == this.types.length;
+    }
+
+    // Append an event, song and playlist IDs are ignored for ASK
+    public void add(EventType type, int songID, int playlistID) {
+        this.types[this.size] = type;
+        this.songIDs[this.size] = songID;
+        this.playlistIDs[this.size] = playlistID;
+        this.size++;
+    }
+
+    // Apply the events in order, print their output and empty the batch
+    public void apply(EpicBlend epicBlend, OutputSink output) throws IOException {
+        for(int i = 0; i < this.size; i++) {
+            int songID = this.songIDs[i];
+            int playlistID = this.playlistIDs[i];
+
+            switch (this.types[i]) {
+                case REM -> epicBlend.remove(songID, playlistID, output);
+                case ADD -> epicBlend.add(songID, playlistID, output);
+                case ASK -> epicBlend.ask(output);
+            }
+        }
+        this.size = 0;
+    }
+}
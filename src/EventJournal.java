@@ -0,0 +1,214 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+//  Append-only log of the ADD and REM events applied to the Epic Blend. Records are collected into groups in memory and
+// a committer thread writes and forces each group to disk at once, when the group is full or its oldest record has
+// waited maxDelayMillis. append() only copies the record into the current group, it waits for the disk only when a
+// whole group is full while the previous one is still being written. The file starts with the magic number and the
+// sequence number of its first record, each record is the event type, the song ID and the playlist ID
+public class EventJournal implements Closeable {
+    private static final long MAGIC = InputReader.tokenCode("EPICJRNL");
+    private static final int HEADER_SIZE = Long.BYTES * 2;
+    private static final int RECORD_SIZE = 1 + Integer.BYTES * 2;
+    private static final byte ADD = 'A';
+    private static final byte REM = 'R';
+
+    private final FileChannel file;
+    private final long maxDelayNanos;
+    private final Thread committer;
+
+    // Guarded by the lock of this object
+    private ByteBuffer filling;  // Group the next records are appended to
+    private ByteBuffer writing;  // Group the committer writes, swapped with the filling one
+    private long firstPendingNanos;  // When the oldest record of the filling group was appended
+    private long appendedCount;  // Records appended so far
+    private long durableCount;  // Records forced to disk so far
+    private boolean closed;
+    private IOException failure;  // Failure of the committer, rethrown to the appending thread
+
+    // Start a new journal whose first record gets the given sequence number
+    EventJournal(Path path, long startSequence, int groupSize, long maxDelayMillis) throws IOException {
+        if(groupSize < 1) {
+            throw new IllegalArgumentException("Group size must be positive, got " + groupSize);
+        }
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.filling = ByteBuffer.allocateDirect(groupSize * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.writing = ByteBuffer.allocateDirect(groupSize * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC).putLong(startSequence).flip();
+        while(header.hasRemaining()) {
+            this.file.write(header);
+        }
+        this.file.force(false);
+
+        this.committer = new Thread(this::commitGroups, "epic-blend-journal");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    // Append an ADD or REM event, it reaches the disk with its group
+    public synchronized void append(EventType eventType, int songID, int playlistID) throws IOException {
+        while(!this.filling.hasRemaining() && this.failure == null) {
+            waitForCommitter();
+        }
+        if(this.failure != null) {
+            throw this.failure;
+        }
+
+        boolean firstOfGroup = this.filling.position() == 0;
+        if(firstOfGroup) {
+            this.firstPendingNanos = System.nanoTime();
+        }
+        this.filling.put(eventType == EventType.ADD ? ADD : REM).putInt(songID).putInt(playlistID);
+        this.appendedCount++;
+        if(firstOfGroup || !this.filling.hasRemaining()) {  // The committer starts timing a new group or has one due
+            notifyAll();
+        }
+    }
+
+    // Wait until every record appended so far is on disk
+    public synchronized void sync() throws IOException {
+        long target = this.appendedCount;
+        this.firstPendingNanos = System.nanoTime() - this.maxDelayNanos;  // Commit the current group right away
+        notifyAll();
+        while(this.durableCount < target && this.failure == null) {
+            waitForCommitter();
+        }
+        if(this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void waitForCommitter() throws IOException {
+        try {
+            wait();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+    }
+
+    // Body of the committer thread: swap the groups when one is due, then write and force it without holding the lock
+    private void commitGroups() {
+        try {
+            while(true) {
+                ByteBuffer group;
+                synchronized(this) {
+                    while(!isGroupDue()) {
+                        if(this.filling.position() == 0) {
+                            if(this.closed) {
+                                return;
+                            }
+                            wait();  // Until the first record of the next group
+                        }
+                        else {
+                            long waitNanos = this.firstPendingNanos + this.maxDelayNanos - System.nanoTime();
+                            if(waitNanos > 0) {
+                                TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                            }
+                        }
+                    }
+                    group = this.filling;
+                    this.filling = this.writing;
+                    this.writing = group;
+                    notifyAll();  // The appending thread may continue with the empty group
+                }
+
+                group.flip();
+                int records = group.remaining() / RECORD_SIZE;
+                while(group.hasRemaining()) {
+                    this.file.write(group);
+                }
+                this.file.force(false);
+                group.clear();
+
+                synchronized(this) {
+                    this.durableCount += records;
+                    notifyAll();
+                }
+            }
+        }
+        catch(IOException e) {
+            synchronized(this) {
+                this.failure = e;
+                notifyAll();
+            }
+        }
+        catch(InterruptedException e) {
+            synchronized(this) {
+                this.failure = new InterruptedIOException("Journal committer interrupted");
+                notifyAll();
+            }
+        }
+    }
+
+    // Must hold the lock: whether the filling group should be written now
+    private boolean isGroupDue() {
+        if(this.filling.position() == 0) {
+            return false;
+        }
+        return !this.filling.hasRemaining() || this.closed || System.nanoTime() - this.firstPendingNanos >= this.maxDelayNanos;
+    }
+
+    // Commit the remaining records and close the file
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            this.closed = true;
+            notifyAll();
+        }
+        try {
+            this.committer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the journal");
+        }
+        this.file.close();
+        if(this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    // Receives the events of a journal during replay
+    public interface Replay {
+        void apply(long sequence, EventType eventType, int songID, int playlistID) throws IOException;
+    }
+
+    //  Hand every complete record of a journal file to the replay in order, a record cut short by a crash is ignored.
+    // Return the sequence number following the last record
+    public static long replay(Path path, Replay replay) throws IOException {
+        try(FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(file.size() < HEADER_SIZE) {  // Crashed before the header was written, holds no events
+                return -1;
+            }
+            MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.getLong() != MAGIC) {
+                throw new IOException(path + " is not an Epic Blend journal");
+            }
+            long sequence = buffer.getLong();
+            while(buffer.remaining() >= RECORD_SIZE) {
+                byte type = buffer.get();
+                int songID = buffer.getInt();
+                int playlistID = buffer.getInt();
+                if(type != ADD && type != REM) {
+                    throw new IOException("Corrupt record " + sequence + " in " + path);
+                }
+                replay.apply(sequence++, type == ADD ? EventType.ADD : EventType.REM, songID, playlistID);
+            }
+            return sequence;
+        }
+    }
+}
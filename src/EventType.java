@@ -0,0 +1,20 @@
+// Types of the events given in the event file
+public enum EventType {
+    ADD,  // Add a song to a playlist
+    REM,  // Remove a song from a playlist
+    ASK;  // Print the Epic Blend
+
+    private static final EventType[] TYPES = values();  // values() copies the array on every call
+
+    private final long code = InputReader.tokenCode(name());
+
+    // Event type of a token code read via InputReader.nextTokenCode
+    public static EventType of(long code) {
+        for(EventType eventType : TYPES) {
+            if(eventType.code == code) {
+                return eventType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown event type");
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.concurrent.TimeUnit;
+
+//  When the streaming driver hands its output over: after every event for the lowest latency, after every N events, or
+// once a time interval has passed for the highest throughput. Parsed from "event", "every:N" or "interval:MS"
+public final class FlushPolicy {
+    public final int everyEvents;  // Flush after this many events, 0 when flushing by time
+    public final long intervalNanos;  // Flush when this much time has passed since the last flush, 0 when flushing by count
+
+    private FlushPolicy(int everyEvents, long intervalNanos) {
+        this.everyEvents = everyEvents;
+        this.intervalNanos = intervalNanos;
+    }
+
+    public static FlushPolicy perEvent() {
+        return new FlushPolicy(1, 0);
+    }
+
+    public static FlushPolicy everyEvents(int count) {
+        if(count < 1) {
+            throw new IllegalArgumentException("Event count must be positive, got " + count);
+        }
+        return new FlushPolicy(count, 0);
+    }
+
+    public static FlushPolicy interval(long millis) {
+        if(millis < 1) {
+            throw new IllegalArgumentException("Flush interval must be positive, got " + millis);
+        }
+        return new FlushPolicy(0, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public static FlushPolicy parse(String policy) {
+        if(policy.equals("event")) {
+            return perEvent();
+        }
+        else if(policy.startsWith("every:")) {
+            return everyEvents(Integer.parseInt(policy.substring("every:".length())));
+        }
+        else if(policy.startsWith("interval:")) {
+            return interval(Long.parseLong(policy.substring("interval:".length())));
+        }
+        throw new IllegalArgumentException("Flush policy must be event, every:N or interval:MS, got " + policy);
+    }
+
+    public boolean isTimed() {
+        return this.intervalNanos > 0;
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//  Byte level tokenizer for the input files. Integers are parsed straight from the bytes without creating strings, only
+// song names become strings. Files larger than MAP_THRESHOLD are memory-mapped window by window instead of being copied
+public class InputReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAP_THRESHOLD = 1L << 26;  // 64 MB
+    private static final long MAP_WINDOW = 1L << 30;  // Largest part of a file mapped at once
+
+    private final ReadableByteChannel channel;
+    private final FileChannel mappedFile;  // Null unless the input is memory-mapped
+    private final long followMillis;  // How long to wait for a growing file to get longer at its end, 0 to stop there
+    private long mappedPosition;  // File position right after the currently mapped window
+    private ByteBuffer buffer;
+    private byte[] token;  // Bytes of the last token read as a string
+
+    InputReader(Path path) throws IOException {
+        this(path, 0);
+    }
+    //  Reader of a file that may still be growing: at the end of the file it waits followMillis and reads again instead
+    // of ending the input, so the input never ends unless followMillis is 0. Growing files are never memory-mapped
+    InputReader(Path path, long followMillis) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        this.channel = file;
+        this.followMillis = followMillis;
+        if(followMillis == 0 && file.size() > MAP_THRESHOLD) {
+            this.mappedFile = file;
+            this.buffer = ByteBuffer.allocate(0);
+        }
+        else {
+            this.mappedFile = null;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        }
+        this.token = new byte[64];
+    }
+    InputReader(InputStream input) {
+        this.channel = Channels.newChannel(input);
+        this.mappedFile = null;
+        this.followMillis = 0;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        this.token = new byte[64];
+    }
+
+    // Load the next part of the input into the buffer, return false at the end of the input
+    private boolean refill() throws IOException {
+        if(this.mappedFile != null) {
+            long remaining = this.mappedFile.size() - this.mappedPosition;
+            if(remaining <= 0) {
+                return false;
+            }
+            long length = Math.min(remaining, MAP_WINDOW);
+            this.buffer = this.mappedFile.map(FileChannel.MapMode.READ_ONLY, this.mappedPosition, length);
+            this.mappedPosition += length;
+            return true;
+        }
+
+        this.buffer.clear();
+        int read;
+        do {
+            read = this.channel.read(this.buffer);
+            if(read == -1 && this.followMillis > 0) {  // Wait for the file to grow
+                sleep();
+                read = 0;
+            }
+        } while(read == 0);
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    private void sleep() throws IOException {
+        try {
+            Thread.sleep(this.followMillis);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for input");
+        }
+    }
+
+    // Skip whitespace and return whether there is another token in the input
+    public boolean hasNext() throws IOException {
+        while(true) {
+            if(!this.buffer.hasRemaining() && !refill()) {
+                return false;
+            }
+            if(this.buffer.get(this.buffer.position()) > ' ') {
+                return true;
+            }
+            this.buffer.get();
+        }
+    }
+
+    // Whether the next token starts with a digit, false at the end of the input
+    public boolean nextIsDigit() throws IOException {
+        if(!hasNext()) {
+            return false;
+        }
+        byte b = this.buffer.get(this.buffer.position());
+        return b >= '0' && b <= '9';
+    }
+
+    // Next byte of the current token, -1 when the token or the input ends
+    private int nextTokenByte() throws IOException {
+        if(!this.buffer.hasRemaining() && !refill()) {
+            return -1;
+        }
+        byte b = this.buffer.get(this.buffer.position());
+        if(b <= ' ') {
+            return -1;
+        }
+        this.buffer.get();
+        return b;
+    }
+
+    private void requireToken() throws IOException {
+        if(!hasNext()) {
+            throw new EOFException("Unexpected end of input");
+        }
+    }
+
+    public int nextInt() throws IOException {
+        requireToken();
+        int b = nextTokenByte();
+        boolean negative = b == '-';
+        if(negative) {
+            b = nextTokenByte();
+        }
+
+        int value = 0;
+        while(b != -1) {
+            if(b < '0' || b > '9') {
+                throw new NumberFormatException("Unexpected character '" + (char) b + "' in a number");
+            }
+            value = value * 10 + (b - '0');
+            b = nextTokenByte();
+        }
+        return negative ? -value : value;
+    }
+
+    // Next whitespace separated token as a string, used for song names
+    public String nextToken() throws IOException {
+        requireToken();
+        int length = 0;
+        for(int b = nextTokenByte(); b != -1; b = nextTokenByte()) {
+            if(length == this.token.length) {
+                this.token = Arrays.copyOf(this.token, length * 2);
+            }
+            this.token[length++] = (byte) b;
+        }
+        return new String(this.token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    //  First 8 bytes of the next token packed into a long, the rest of the token is skipped. Lets callers tell short
+    // keywords apart without creating strings, see tokenCode
+    public long nextTokenCode() throws IOException {
+        requireToken();
+        long code = 0;
+        int length = 0;
+        for(int b = nextTokenByte(); b != -1; b = nextTokenByte()) {
+            if(length++ < 8) {
+                code = (code << 8) | (b & 0xFF);
+            }
+        }
+        return code;
+    }
+
+    // Code of a keyword as returned by nextTokenCode
+    public static long tokenCode(String keyword) {
+        long code = 0;
+        byte[] bytes = keyword.getBytes(StandardCharsets.UTF_8);
+        for(int i = 0; i < bytes.length && i < 8; i++) {
+            code = (code << 8) | (bytes[i] & 0xFF);
+        }
+        return code;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
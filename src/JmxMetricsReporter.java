@@ -0,0 +1,86 @@
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+//  Exposes every metric of a registry as a read-only attribute of an MBean on the platform MBean server, so JConsole or
+// any JMX client can watch a running blend. Values are read from the registry whenever an attribute is requested
+public class JmxMetricsReporter implements Closeable, DynamicMBean {
+    private final MetricsRegistry registry;
+    private final MBeanServer server;
+    private final ObjectName objectName;
+
+    // Register the MBean under a name such as "epicblend:type=Metrics"
+    JmxMetricsReporter(MetricsRegistry registry, String objectName) throws JMException {
+        this.registry = registry;
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.objectName = new ObjectName(objectName);
+        this.server.registerMBean(this, this.objectName);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long value = this.registry.value(attribute);
+        if(value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for(String attribute : attributes) {
+            Long value = this.registry.value(attribute);
+            if(value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+    }
+
+    // Built on every request, blends may register metrics after the MBean
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<String> names = this.registry.names();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+        for(int i = 0; i < attributes.length; i++) {
+            attributes[i] = new MBeanAttributeInfo(names.get(i), "long", names.get(i), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Epic Blend metrics", attributes, null, null, null);
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.server.unregisterMBean(this.objectName);
+        }
+        catch(JMException e) {
+            // Already unregistered
+        }
+    }
+}
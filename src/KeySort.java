@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+//  Ascending sort of packed long sort keys (see SongStore). Uses an LSD radix sort over 8 bit digits, so the running time
+// stays linear however many keys share a play count or however the input is ordered, and nothing is sorted recursively
+public final class KeySort {
+    private static final int INSERTION_SORT_THRESHOLD = 64;  // Short inputs are cheaper to sort by insertion
+    public static final int DIGIT_COUNT = 256;  // Values of an 8 bit digit, the size of the counts array
+
+    private KeySort() {}
+
+    // Sort the first length keys of the array
+    public static void sort(long[] keys, int length) {
+        if(length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, length);
+            return;
+        }
+        sort(keys, length, new long[length], new int[DIGIT_COUNT]);
+    }
+
+    //  Sort the first length keys of the array with buffers kept by the caller, so repeated sorts allocate nothing.
+    // scratch must hold at least length keys and counts DIGIT_COUNT ints, their contents are overwritten
+    public static void sort(long[] keys, int length, long[] scratch, int[] counts) {
+        if(length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, length);
+            return;
+        }
+
+        long[] source = keys;
+        long[] target = scratch;
+
+        for(int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(counts, 0);
+            for(int i = 0; i < length; i++) {
+                counts[digit(source[i], shift)]++;
+            }
+            if(counts[digit(source[0], shift)] == length) {  // Every key has the same digit, this pass would not move anything
+                continue;
+            }
+
+            int total = 0;
+            for(int digit = 0; digit < counts.length; digit++) {
+                int count = counts[digit];
+                counts[digit] = total;
+                total += count;
+            }
+            for(int i = 0; i < length; i++) {
+                target[counts[digit(source[i], shift)]++] = source[i];
+            }
+
+            long[] tmp = source;
+            source = target;
+            target = tmp;
+        }
+
+        if(source != keys) {
+            System.arraycopy(source, 0, keys, 0, length);
+        }
+    }
+
+    // Digit of a key at the given bit position, the sign bit is flipped in the top digit so negative keys come first
+    private static int digit(long key, int shift) {
+        int digit = (int) (key >>> shift) & 0xFF;
+        return shift == 56 ? digit ^ 0x80 : digit;
+    }
+
+    private static void insertionSort(long[] keys, int length) {
+        for(int i = 1; i < length; i++) {
+            long key = keys[i];
+            int hole = i;
+            while(hole > 0 && keys[hole - 1] > key) {
+                keys[hole] = keys[hole - 1];
+                hole--;
+            }
+            keys[hole] = key;
+        }
+    }
+}
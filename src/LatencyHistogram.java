@@ -0,0 +1,87 @@
+import java.util.Arrays;
+
+//  Histogram of latencies in nanoseconds with log-linear buckets like HdrHistogram: values below 128 get a bucket each,
+// larger values are counted in 64 buckets per power of two, so any value is off by at most 1/64 of itself. The buckets
+// are allocated once and record() only increments a counter, so recording never allocates. Written by a single thread,
+// other threads may read it while it is written and see counts that are a few events behind
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;  // Values below this are counted exactly
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final long[] counts;
+    private long totalCount;
+    private long totalNanos;
+    private long maxNanos;
+
+    LatencyHistogram() {
+        this.counts = new long[BUCKET_COUNT];
+    }
+
+    // Bucket of a value, buckets grow with the value
+    private static int bucketOf(long value) {
+        if(value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    // Largest value counted in a bucket
+    private static long highestValueOf(int bucket) {
+        if(bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = bucket - shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        this.counts[bucketOf(value)]++;
+        this.totalCount++;
+        this.totalNanos += value;
+        if(value > this.maxNanos) {
+            this.maxNanos = value;
+        }
+    }
+
+    public long count() {
+        return this.totalCount;
+    }
+
+    public long max() {
+        return this.maxNanos;
+    }
+
+    public double mean() {
+        return this.totalCount == 0 ? 0 : (double) this.totalNanos / this.totalCount;
+    }
+
+    //  Smallest recorded value that the given fraction of the values (0 to 1) do not exceed, rounded up to the end of its
+    // bucket. 0 when nothing was recorded
+    public long percentile(double fraction) {
+        long total = this.totalCount;
+        if(total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for(int bucket = 0; bucket < this.counts.length; bucket++) {
+            seen += this.counts[bucket];
+            if(seen >= target) {
+                return Math.min(highestValueOf(bucket), this.maxNanos);
+            }
+        }
+        return this.maxNanos;
+    }
+
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.totalCount = 0;
+        this.totalNanos = 0;
+        this.maxNanos = 0;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+//  Hash map from long keys to int values without boxing, the same open addressing scheme as IntIntHashMap. Used for keys
+// packing two IDs into one long. Key 0 marks empty slots and cannot be stored
+public class LongIntHashMap {
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int shift;  // Number of hash bits dropped so that the rest indexes the slots
+
+    LongIntHashMap() {
+        this(8);
+    }
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.size = 0;
+        this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    private int slotOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (this.shift + 32));
+    }
+
+    // Slot holding the key, or the empty slot where it would be inserted
+    private int find(long key) {
+        int mask = this.keys.length - 1;
+        int slot = slotOf(key);
+        while(this.keys[slot] != EMPTY && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public boolean containsKey(long key) {
+        return this.keys[find(key)] != EMPTY;
+    }
+
+    // Value of the key, or defaultValue if the key is not in the map
+    public int get(long key, int defaultValue) {
+        int slot = find(key);
+        return this.keys[slot] == EMPTY ? defaultValue : this.values[slot];
+    }
+
+    public void put(long key, int value) {
+        int slot = find(key);
+        if(this.keys[slot] == EMPTY) {
+            if((this.size + 1) * 4 > this.keys.length * 3) {  // Keep the map at most three quarters full
+                grow();
+                slot = find(key);
+            }
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.values[slot] = value;
+    }
+
+    // Remove the key and return its value, or defaultValue if the key is not in the map
+    public int remove(long key, int defaultValue) {
+        int slot = find(key);
+        if(this.keys[slot] == EMPTY) {
+            return defaultValue;
+        }
+        int value = this.values[slot];
+
+        // Move back each following entry of the run that would no longer be reachable past the emptied slot
+        int mask = this.keys.length - 1;
+        int hole = slot;
+        for(int next = (hole + 1) & mask; this.keys[next] != EMPTY; next = (next + 1) & mask) {
+            int ideal = slotOf(this.keys[next]);
+            if(((next - ideal) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+        }
+        this.keys[hole] = EMPTY;
+        this.size--;
+
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new int[oldKeys.length * 2];
+        this.shift--;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -1,116 +1,118 @@
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
-
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+//  Reads songs.txt and general_small.txt and appends the results to output_general_small.txt. With --parallel the
+// categories are built and updated on separate threads, --batch=N applies the events in blocks of N (1024 by default).
+// --save-snapshot=file writes the state after the last event to a StateSnapshot, --restore-snapshot=file starts from
+// one instead of songs.txt and the playlists, in which case general_small.txt only holds the event count and the events.
+// --metrics=MS prints the latencies and heap sizes of the blend to stderr every MS milliseconds and at the end.
+// --heap-arity=N gives every heap N children per slot (4 by default), a restored blend keeps the arity of its snapshot
 public class Main {
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+
     public static void main(String[] args) throws IOException {
-        Song[] allSongsArray;  // Array to store song objects given in the first input file
+        boolean parallel = false;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        Path saveSnapshot = null;
+        Path restoreSnapshot = null;
+        long metricsMillis = 0;
+        int heapArity = BinaryHeap.DEFAULT_ARITY;
+        for(String arg : args) {
+            if(arg.equals("--parallel")) {
+                parallel = true;
+            }
+            else if(arg.startsWith("--batch=")) {
+                batchSize = Integer.parseInt(arg.substring("--batch=".length()));
+            }
+            else if(arg.startsWith("--save-snapshot=")) {
+                saveSnapshot = Path.of(arg.substring("--save-snapshot=".length()));
+            }
+            else if(arg.startsWith("--restore-snapshot=")) {
+                restoreSnapshot = Path.of(arg.substring("--restore-snapshot=".length()));
+            }
+            else if(arg.startsWith("--metrics=")) {
+                metricsMillis = Long.parseLong(arg.substring("--metrics=".length()));
+            }
+            else if(arg.startsWith("--heap-arity=")) {
+                heapArity = Integer.parseInt(arg.substring("--heap-arity=".length()));
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        SongStore songStore;  // Columns of the songs given in the first input file
+        int[] limits;
         EpicBlend epicBlend;
-        PlayList[] playListArray;  // Array to store playlist objects
+        Membership membership;  // Playlists of the songs
 
-        FileWriter output = new FileWriter("output_general_small.txt", true);
+        OutputSink output = OutputSink.toFile(Path.of("output_general_small.txt"), true);
 
-        // Take song infos from the input file and create corresponding song objects via first input file
-        File file = new File("songs.txt");
-        Scanner input = new Scanner(file);
+        // The calling thread updates one category itself, the pool takes the others
+        ForkJoinPool pool = parallel ? new ForkJoinPool(Math.max(1, Math.min(Category.COUNT - 1, Runtime.getRuntime().availableProcessors() - 1))) : null;
 
-        // Store all songs
-        allSongsArray = new Song[Integer.parseInt(input.nextLine()) + 1];
-        allSongsArray[0] = null;
+        MetricsRegistry metrics = metricsMillis > 0 ? new MetricsRegistry() : null;
+        TextMetricsReporter reporter = metrics != null ? new TextMetricsReporter(metrics, System.err, metricsMillis) : null;
 
-        while(input.hasNextLine()) {
-            String[] songInfo = input.nextLine().strip().split(" ");
-
-            // Parse string info into integer
-            int[] songInfoInt = new int[songInfo.length-1];
-            int j = 0;
-            for(int i=0; i<songInfo.length; i++) {
-                if(i==1) {
-                    continue;
-                }
-                songInfoInt[j] = Integer.parseInt(songInfo[i]);
-                j++;
+        InputReader input = new InputReader(Path.of("general_small.txt"));
+        if(restoreSnapshot != null) {
+            StateSnapshot snapshot = StateSnapshot.read(restoreSnapshot, pool);
+            songStore = snapshot.songs;
+            limits = snapshot.limits;
+            membership = snapshot.membership;
+            epicBlend = snapshot.epicBlend;
+            if(metrics != null) {
+                epicBlend.enableMetrics(metrics, "");
             }
-
-            // Create song object
-            Song song = new Song(songInfoInt, songInfo[1]);
-            allSongsArray[song.songID] = song;
-        }
-        input.close();
-
-        // Create playlists, EpicBland and process requests from the user via second input file
-        file = new File("general_small.txt");
-        input = new Scanner(file);
-
-        // Create epicBland object with the given limit infos
-        String[] limits = input.nextLine().strip().split(" ");
-        int[] limitsInt = new int[limits.length];
-        for(int i=0; i<limits.length; i++) {
-            limitsInt[i] = Integer.parseInt(limits[i]);
         }
+        else {
+            // Take song infos from the input file and store them in song columns via first input file
+            try(InputReader songInput = new InputReader(Path.of("songs.txt"))) {
+                songStore = BlendInput.loadSongs(songInput);
+            }
 
-        // Create playlists and store them
-        int playlistCount = input.nextInt();
-        input.nextLine();
-        playListArray = new PlayList[playlistCount + 1];
-        playListArray[0] = null;
-
-        Song[] currentSongsArray = new Song[allSongsArray.length];
-        int index = 0;
-
-        for(int i=0; i<playlistCount; i++) {
-            int playListID = input.nextInt();
-            int songCount = input.nextInt();  // Song count inside the current play list
-            input.nextLine();
-
-            PlayList playList = new PlayList();
-            for(int j=0; j<songCount; j++) {
-                int songID = input.nextInt();
-                Song song = allSongsArray[songID];  // Get the song object with the specified song ID
-                song.playlistID = playListID;  // Specify which playlist this song belongs to
-
-                playList.songsArray.add(song);
+            // Create playlists, EpicBland and process requests from the user via second input file
+            BlendInput blendInput = BlendInput.load(songStore, input);
+            limits = blendInput.limits;
+            membership = blendInput.membership;
 
-                currentSongsArray[index] = song;
-                index++;
+            // Create epicBland object with the given limit infos
+            epicBlend = new EpicBlend(limits, songStore, membership, pool, heapArity);
+            if(metrics != null) {
+                epicBlend.enableMetrics(metrics, "");
             }
-            input.nextLine();
-
-            playListArray[playListID] = playList;
+            epicBlend.createEpicBlend(blendInput.initialEntries);
         }
 
-        epicBlend = new EpicBlend(limitsInt, currentSongsArray, currentSongsArray, currentSongsArray, playListArray.length);
-        epicBlend.createEpicBlend(playListArray);
-
         // Process events / requests
         int numOfEvents = input.nextInt();
-        input.nextLine();
 
+        EventBatch batch = new EventBatch(batchSize);
         for(int i=0; i<numOfEvents; i++) {
-            String[] event = input.nextLine().strip().split(" ");
-            String eventType = event[0];
+            EventType eventType = EventType.of(input.nextTokenCode());
+            if(eventType == EventType.ASK) {
+                batch.add(eventType, 0, 0);
+            }
+            else {
+                int songID = input.nextInt();
+                int playlistID = input.nextInt();
+                batch.add(eventType, songID, playlistID);
+            }
 
-            switch (eventType) {
-                case "REM" -> {
-                    int songID = Integer.parseInt(event[1]);
-                    int playlistID = Integer.parseInt(event[2]);
-                    Song deletedSong = allSongsArray[songID];
-                    playListArray[playlistID].songsArray.remove(deletedSong);
-                    epicBlend.remove(playListArray, allSongsArray, deletedSong, output);
-                }
-                case "ADD" -> {
-                    int songID = Integer.parseInt(event[1]);
-                    int playlistID = Integer.parseInt(event[2]);
-                    Song newSong = allSongsArray[songID];
-                    newSong.playlistID = playlistID;
-                    playListArray[playlistID].songsArray.add(newSong);
-                    epicBlend.add(playListArray, allSongsArray, newSong, output);
-                }
-                case "ASK" -> epicBlend.ask(output);
+            if(batch.isFull() || i == numOfEvents - 1) {
+                batch.apply(epicBlend, output);
             }
         }
         input.close();
         output.close();
+        if(reporter != null) {
+            reporter.close();
+        }
+        if(saveSnapshot != null) {
+            StateSnapshot.write(saveSnapshot, songStore, limits, membership, epicBlend);
+        }
+        if(pool != null) {
+            pool.shutdown();
+        }
     }
-}
\ No newline at end of file
+}
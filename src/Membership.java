@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+//  Playlist membership of a single Epic Blend, the only song data that ADD and REM events change. The catalog in
+// SongStore is never written after loading, so any number of blends can run over one copy of it with a Membership each.
+//  A song may belong to many playlists. Each (song, playlist) pair is an entry with its own ID, and the heaps of the
+// categories hold entries, so the category limit of every playlist counts its own entries, while a song still takes
+// one slot of a category at most, see CategoryState. Entries only refer to their song, the song data is not copied.
+// IDs of removed entries are reused, so they stay below the largest number of entries alive at once.
+//  The entries of each playlist are linked into a list through their IDs, so a playlist can be walked with firstEntry()
+// and nextEntry() and an entry is unlinked in O(1) when its song leaves the playlist
+public class Membership {
+    private int[] songOfEntry;  // Song of each entry indexed by entry ID, 0 for a free ID. 0th index is not used
+    private int[] playlistOfEntry;  // Playlist of each entry indexed by entry ID
+    private int entryCount;  // IDs from 1 to entryCount were handed out so far
+    private int[] freeEntries;  // Released IDs to hand out again
+    private int freeCount;
+    private final LongIntHashMap entryOfPair;  // Entry ID of each (song, playlist) pair, see pair()
+    private final int playlistCount;  // Playlist IDs run from 1 to this
+    private int[] nextInPlaylist;  // Next entry of the same playlist indexed by entry ID, 0 after the last one
+    private int[] previousInPlaylist;  // Previous entry of the same playlist indexed by entry ID, 0 before the first
+    private final int[] firstOfPlaylist;  // First entry of each playlist indexed by playlist ID, 0 when it is empty
+    private final int[] sizeOfPlaylist;  // Number of songs in each playlist indexed by playlist ID
+
+    // Empty playlists with IDs from 1 to playlistCount
+    Membership(int playlistCount) {
+        this(new int[16], new int[16], 0, playlistCount);
+    }
+
+    private Membership(int[] songOfEntry, int[] playlistOfEntry, int entryCount, int playlistCount) {
+        this.songOfEntry = songOfEntry;
+        this.playlistOfEntry = playlistOfEntry;
+        this.entryCount = entryCount;
+        this.freeEntries = new int[8];
+        this.freeCount = 0;
+        this.entryOfPair = new LongIntHashMap(Math.max(8, entryCount));
+        this.playlistCount = playlistCount;
+        this.nextInPlaylist = new int[songOfEntry.length];
+        this.previousInPlaylist = new int[songOfEntry.length];
+        this.firstOfPlaylist = new int[playlistCount + 1];
+        this.sizeOfPlaylist = new int[playlistCount + 1];
+    }
+
+    private static long pair(int song, int playlistID) {
+        return ((long) song << 32) | (playlistID & 0xFFFFFFFFL);
+    }
+
+    // Number of playlists, IDs run from 1 to this
+    public int playlistCount() {
+        return this.playlistCount;
+    }
+
+    //  Size of arrays indexed by entry ID, every entry ID is below it. It only grows when an entry is added, so arrays
+    // sized by it stay valid until the next add()
+    public int entryCapacity() {
+        return this.songOfEntry.length;
+    }
+
+    // Number of entries in the playlists
+    public int entryCount() {
+        return this.entryCount - this.freeCount;
+    }
+
+    // Song and playlist of an entry, a removed entry keeps them until it is released
+    public int songOf(int entry) {
+        return this.songOfEntry[entry];
+    }
+
+    public int playlistOf(int entry) {
+        return this.playlistOfEntry[entry];
+    }
+
+    // Number of songs in a playlist
+    public int playlistSize(int playlistID) {
+        return this.sizeOfPlaylist[playlistID];
+    }
+
+    // First entry of a playlist, 0 for an empty playlist. The entries of a playlist come in no particular order
+    public int firstEntry(int playlistID) {
+        return this.firstOfPlaylist[playlistID];
+    }
+
+    // Entry after the given one in its playlist, 0 after the last one. Entries must not be added or removed meanwhile
+    public int nextEntry(int entry) {
+        return this.nextInPlaylist[entry];
+    }
+
+    // Entry of the song in the playlist, 0 if the song is not in the playlist
+    public int entryOf(int song, int playlistID) {
+        return this.entryOfPair.get(pair(song, playlistID), 0);
+    }
+
+    // Add a song to a playlist and return its new entry
+    public int add(int song, int playlistID) {
+        if(playlistID < 1 || playlistID > this.playlistCount) {
+            throw new IllegalArgumentException("Unknown playlist " + playlistID);
+        }
+        long pair = pair(song, playlistID);
+        if(this.entryOfPair.containsKey(pair)) {
+            throw new IllegalArgumentException("Song " + song + " is already in playlist " + playlistID);
+        }
+
+        int entry;
+        if(this.freeCount > 0) {
+            entry = this.freeEntries[--this.freeCount];
+        }
+        else {
+            entry = ++this.entryCount;
+            if(entry == this.songOfEntry.length) {
+                this.songOfEntry = Arrays.copyOf(this.songOfEntry, entry * 2);
+                this.playlistOfEntry = Arrays.copyOf(this.playlistOfEntry, entry * 2);
+                this.nextInPlaylist = Arrays.copyOf(this.nextInPlaylist, entry * 2);
+                this.previousInPlaylist = Arrays.copyOf(this.previousInPlaylist, entry * 2);
+            }
+        }
+        this.songOfEntry[entry] = song;
+        this.playlistOfEntry[entry] = playlistID;
+        this.entryOfPair.put(pair, entry);
+        link(entry);
+        return entry;
+    }
+
+    // Put an entry at the front of the list of its playlist
+    private void link(int entry) {
+        int playlistID = this.playlistOfEntry[entry];
+        int first = this.firstOfPlaylist[playlistID];
+        this.nextInPlaylist[entry] = first;
+        this.previousInPlaylist[entry] = 0;
+        if(first != 0) {
+            this.previousInPlaylist[first] = entry;
+        }
+        this.firstOfPlaylist[playlistID] = entry;
+        this.sizeOfPlaylist[playlistID]++;
+    }
+
+    // Take an entry out of the list of its playlist
+    private void unlink(int entry) {
+        int playlistID = this.playlistOfEntry[entry];
+        int next = this.nextInPlaylist[entry];
+        int previous = this.previousInPlaylist[entry];
+        if(previous != 0) {
+            this.nextInPlaylist[previous] = next;
+        }
+        else {
+            this.firstOfPlaylist[playlistID] = next;
+        }
+        if(next != 0) {
+            this.previousInPlaylist[next] = previous;
+        }
+        this.sizeOfPlaylist[playlistID]--;
+    }
+
+    //  Remove a song from a playlist and return its entry, 0 if the song was not in the playlist. The entry keeps its song
+    // and playlist until release(), so the categories can still take it out of their heaps
+    public int remove(int song, int playlistID) {
+        int entry = this.entryOfPair.remove(pair(song, playlistID), 0);
+        if(entry != 0) {
+            unlink(entry);
+        }
+        return entry;
+    }
+
+    // Hand the ID of a removed entry out again, once no heap holds it
+    public void release(int entry) {
+        this.songOfEntry[entry] = 0;
+        this.playlistOfEntry[entry] = 0;
+        if(this.freeCount == this.freeEntries.length) {
+            this.freeEntries = Arrays.copyOf(this.freeEntries, this.freeCount * 2);
+        }
+        this.freeEntries[this.freeCount++] = entry;
+    }
+
+    // Write the entries to a snapshot, see StateSnapshot. Entry IDs are kept, the heaps written after them refer to them
+    public void write(SnapshotWriter output) throws IOException {
+        output.writeInt(this.playlistCount);
+        output.writeInt(this.songOfEntry.length);
+        output.writeInt(this.entryCount);
+        output.writeInts(this.songOfEntry, 0, this.entryCount + 1);
+        output.writeInts(this.playlistOfEntry, 0, this.entryCount + 1);
+        output.writeInt(this.freeCount);
+        output.writeInts(this.freeEntries, 0, this.freeCount);
+    }
+
+    // Read the entries written by write(), the (song, playlist) index and the playlist lists are rebuilt from them
+    public static Membership read(SnapshotReader input) throws IOException {
+        int playlistCount = input.readInt();
+        int entryCapacity = input.readInt();
+        int entryCount = input.readInt();
+        Membership membership = new Membership(new int[entryCapacity], new int[entryCapacity], entryCount, playlistCount);
+        input.readInts(membership.songOfEntry, 0, entryCount + 1);
+        input.readInts(membership.playlistOfEntry, 0, entryCount + 1);
+        membership.freeCount = input.readInt();
+        membership.freeEntries = new int[Math.max(8, membership.freeCount)];
+        input.readInts(membership.freeEntries, 0, membership.freeCount);
+
+        for(int entry = 1; entry <= entryCount; entry++) {
+            int song = membership.songOfEntry[entry];
+            if(song != 0) {
+                int playlistID = membership.playlistOfEntry[entry];
+                membership.entryOfPair.put(pair(song, playlistID), entry);
+                membership.link(entry);
+            }
+        }
+        return membership;
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+//  Named metrics of the Epic Blend: latency histograms recorded on the event thread and gauges read when reported.
+// Metrics are registered once when a blend enables them, reporters such as TextMetricsReporter and JmxMetricsReporter
+// read them from their own threads. Nothing is registered or measured unless a blend is given a registry
+public class MetricsRegistry {
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p999"};
+
+    // Guarded by the lock of this object, only appended to
+    private final List<String> histogramNames;
+    private final List<LatencyHistogram> histograms;
+    private final List<String> gaugeNames;
+    private final List<LongSupplier> gauges;
+
+    MetricsRegistry() {
+        this.histogramNames = new ArrayList<>();
+        this.histograms = new ArrayList<>();
+        this.gaugeNames = new ArrayList<>();
+        this.gauges = new ArrayList<>();
+    }
+
+    // Register a new latency histogram
+    public synchronized LatencyHistogram histogram(String name) {
+        checkUnique(name);
+        LatencyHistogram histogram = new LatencyHistogram();
+        this.histogramNames.add(name);
+        this.histograms.add(histogram);
+        return histogram;
+    }
+
+    // Register a value that is read whenever the metrics are reported
+    public synchronized void gauge(String name, LongSupplier value) {
+        checkUnique(name);
+        this.gaugeNames.add(name);
+        this.gauges.add(value);
+    }
+
+    private void checkUnique(String name) {
+        if(this.histogramNames.contains(name) || this.gaugeNames.contains(name)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered");
+        }
+    }
+
+    //  Every reported value by name: count, mean, max and percentiles of each histogram in nanoseconds, then the gauges.
+    // Values are read as they are, a histogram being written may be a few events behind
+    public synchronized List<String> names() {
+        List<String> names = new ArrayList<>();
+        for(String name : this.histogramNames) {
+            names.add(name + ".count");
+            names.add(name + ".mean");
+            names.add(name + ".max");
+            for(String label : PERCENTILE_LABELS) {
+                names.add(name + "." + label);
+            }
+        }
+        names.addAll(this.gaugeNames);
+        return names;
+    }
+
+    // Current value of a name given by names(), null for an unknown name
+    public synchronized Long value(String name) {
+        for(int i = 0; i < this.histogramNames.size(); i++) {
+            String prefix = this.histogramNames.get(i) + ".";
+            if(name.startsWith(prefix)) {
+                Long value = histogramValue(this.histograms.get(i), name.substring(prefix.length()));
+                if(value != null) {
+                    return value;
+                }
+            }
+        }
+        int gauge = this.gaugeNames.indexOf(name);
+        return gauge == -1 ? null : this.gauges.get(gauge).getAsLong();
+    }
+
+    private static Long histogramValue(LatencyHistogram histogram, String statistic) {
+        switch (statistic) {
+            case "count" -> {
+                return histogram.count();
+            }
+            case "mean" -> {
+                return Math.round(histogram.mean());
+            }
+            case "max" -> {
+                return histogram.max();
+            }
+        }
+        for(int i = 0; i < PERCENTILES.length; i++) {
+            if(statistic.equals(PERCENTILE_LABELS[i])) {
+                return histogram.percentile(PERCENTILES[i]);
+            }
+        }
+        return null;
+    }
+
+    // Print every metric, one line per histogram and one per gauge
+    public synchronized void print(PrintStream out) {
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i < this.histograms.size(); i++) {
+            LatencyHistogram histogram = this.histograms.get(i);
+            line.setLength(0);
+            line.append(this.histogramNames.get(i)).append(" count=").append(histogram.count())
+                    .append(" mean=").append(Math.round(histogram.mean())).append("ns");
+            for(int j = 0; j < PERCENTILES.length; j++) {
+                line.append(' ').append(PERCENTILE_LABELS[j]).append('=').append(histogram.percentile(PERCENTILES[j])).append("ns");
+            }
+            line.append(" max=").append(histogram.max()).append("ns");
+            out.println(line);
+        }
+        for(int i = 0; i < this.gauges.size(); i++) {
+            out.println(this.gaugeNames.get(i) + " " + this.gauges.get(i).getAsLong());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+//  Buffered output for the Epic Blend results. Integers are encoded as ASCII digits straight into a reusable byte buffer
+// which is handed to the underlying stream only when it is full or flushed
+public class OutputSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    public static final int MAX_INT_LENGTH = 11;  // Longest int is a sign followed by 10 digits
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;  // Number of bytes waiting in the buffer
+
+    OutputSink(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.count = 0;
+    }
+
+    public static OutputSink toFile(Path path, boolean append) throws IOException {
+        return new OutputSink(new FileOutputStream(path.toFile(), append));
+    }
+
+    public static OutputSink toStdout() {
+        return new OutputSink(new FileOutputStream(FileDescriptor.out));
+    }
+
+    // Sink that keeps everything written in memory, the content can be read back via contents()
+    public static OutputSink inMemory() {
+        return new OutputSink(new ByteArrayOutputStream());
+    }
+
+    // Everything written to an in-memory sink so far
+    public String contents() throws IOException {
+        flush();
+        return ((ByteArrayOutputStream) this.out).toString(StandardCharsets.US_ASCII);
+    }
+
+    public void writeInt(int value) throws IOException {
+        if(BUFFER_SIZE - this.count < MAX_INT_LENGTH) {
+            flushBuffer();
+        }
+        this.count = encodeInt(value, this.buffer, this.count);
+    }
+
+    //  Write the ASCII digits of a value into the given array starting from offset, return the offset right after the
+    // last digit. There must be at least MAX_INT_LENGTH bytes of room
+    public static int encodeInt(int value, byte[] bytes, int offset) {
+        if(value < 0) {
+            bytes[offset++] = '-';
+        }
+
+        // Write the digits backwards from the end of the number, negative values avoid overflowing Integer.MIN_VALUE
+        int negative = value < 0 ? value : -value;
+        int end = offset + digitCount(negative);
+        int index = end;
+        do {
+            bytes[--index] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        } while(negative != 0);
+        return end;
+    }
+
+    // Number of digits of a non-positive value
+    private static int digitCount(int negative) {
+        int digits = 1;
+        for(int limit = -10; digits < 10 && negative <= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    public void write(byte[] bytes, int length) throws IOException {
+        if(BUFFER_SIZE - this.count < length) {
+            flushBuffer();
+            if(length > BUFFER_SIZE) {  // Too long to be buffered, hand it over directly
+                this.out.write(bytes, 0, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, this.buffer, this.count, length);
+        this.count += length;
+    }
+
+    public void writeByte(char c) throws IOException {
+        if(this.count == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        this.buffer[this.count++] = (byte) c;
+    }
+
+    public void newLine() throws IOException {
+        writeByte('\n');
+    }
+
+    private void flushBuffer() throws IOException {
+        this.out.write(this.buffer, 0, this.count);
+        this.count = 0;
+    }
+
+    // Hand the buffered bytes to the underlying stream
+    public void flush() throws IOException {
+        flushBuffer();
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.out.close();
+    }
+}
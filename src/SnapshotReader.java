@@ -0,0 +1,94 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//  Reads a snapshot written by SnapshotWriter. The file is memory-mapped window by window and arrays are copied out of
+// the mapping in bulk, so loading costs about as much as paging the file in
+public class SnapshotReader implements Closeable {
+    private static final long MAP_WINDOW = 1L << 30;  // Largest part of the file mapped at once
+
+    private final FileChannel file;
+    private long windowStart;  // File position of the first byte of the mapped window
+    private MappedByteBuffer window;
+
+    SnapshotReader(Path path) throws IOException {
+        this.file = FileChannel.open(path, StandardOpenOption.READ);
+        this.windowStart = 0;
+        map(0);
+    }
+
+    private void map(long position) throws IOException {
+        long length = Math.min(this.file.size() - position, MAP_WINDOW);
+        this.windowStart = position;
+        this.window = this.file.map(FileChannel.MapMode.READ_ONLY, position, length);
+        this.window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    //  Make sure at least the given number of bytes (a single value) can be read from the window, mapping the next part
+    // of the file if needed
+    private void require(int bytes) throws IOException {
+        if(this.window.remaining() < bytes) {
+            long position = this.windowStart + this.window.position();
+            if(this.file.size() - position < bytes) {
+                throw new EOFException("Snapshot ends unexpectedly");
+            }
+            map(position);
+        }
+    }
+
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return this.window.getInt();
+    }
+
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return this.window.getLong();
+    }
+
+    // Read count ints into the array starting from offset
+    public void readInts(int[] values, int offset, int count) throws IOException {
+        while(count > 0) {
+            require(Integer.BYTES);
+            int chunk = Math.min(count, this.window.remaining() / Integer.BYTES);
+            this.window.asIntBuffer().get(values, offset, chunk);
+            this.window.position(this.window.position() + chunk * Integer.BYTES);
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    // Fill the whole array
+    public void readLongs(long[] values) throws IOException {
+        int offset = 0;
+        int count = values.length;
+        while(count > 0) {
+            require(Long.BYTES);
+            int chunk = Math.min(count, this.window.remaining() / Long.BYTES);
+            this.window.asLongBuffer().get(values, offset, chunk);
+            this.window.position(this.window.position() + chunk * Long.BYTES);
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    public void readBytes(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while(offset < length) {
+            require(1);
+            int chunk = Math.min(length - offset, this.window.remaining());
+            this.window.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+}
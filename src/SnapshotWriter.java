@@ -0,0 +1,89 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//  Writes the binary snapshot format read by SnapshotReader: little-endian ints and longs, arrays as raw values. Values
+// are collected in a direct buffer which is handed to the file channel when it is full
+public class SnapshotWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel file;
+    private final ByteBuffer buffer;
+
+    SnapshotWriter(Path path) throws IOException {
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Make room for the given number of bytes, at most BUFFER_SIZE
+    private void require(int bytes) throws IOException {
+        if(this.buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    public void writeInt(int value) throws IOException {
+        require(Integer.BYTES);
+        this.buffer.putInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        require(Long.BYTES);
+        this.buffer.putLong(value);
+    }
+
+    // Write count ints of the array starting from offset, the length is not written
+    public void writeInts(int[] values, int offset, int count) throws IOException {
+        while(count > 0) {
+            require(Integer.BYTES);
+            int chunk = Math.min(count, this.buffer.remaining() / Integer.BYTES);
+            this.buffer.asIntBuffer().put(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Integer.BYTES);
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    // Write the whole array, the length is not written
+    public void writeLongs(long[] values) throws IOException {
+        int offset = 0;
+        int count = values.length;
+        while(count > 0) {
+            require(Long.BYTES);
+            int chunk = Math.min(count, this.buffer.remaining() / Long.BYTES);
+            this.buffer.asLongBuffer().put(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Long.BYTES);
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    public void writeBytes(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while(offset < length) {
+            require(1);
+            int chunk = Math.min(length - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        this.buffer.flip();
+        while(this.buffer.hasRemaining()) {
+            this.file.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        this.file.force(false);
+        this.file.close();
+    }
+}
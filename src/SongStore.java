@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+//  Columnar storage of every song in the catalog. Each column is a primitive array indexed by song ID, so heaps and the
+// Epic Blend can work on int song IDs instead of song objects. Columns are only written while loading, playlist
+// membership lives in a Membership per Epic Blend, so many blends can share one catalog
+public class SongStore {
+    public final String[] songName;
+    public final int[] nameRank;  // Lexicographic rank of the song name among all songs, songs with equal names are ranked by ID
+    public final int[] songAtRank;  // Song ID of each name rank, inverse of the nameRank column
+    public final int[] playCount;
+    public final int[][] score;  // Score of each song in each vibe category indexed by Category.index, a value in range 0 - 100
+
+    //  Precomputed sort keys of each song: the value to sort by in the high 32 bits and the inverted name rank in the low
+    // 32 bits, so a greater key means a higher value or the same value but a lexicographically smaller name. As name ranks
+    // are unique, so are the keys of a column and the song of a key can be found via songAtRank
+    public final long[][] categoryKey;  // Indexed by Category.index like the scores
+    public final long[] playCountKey;
+
+    SongStore(int songCount) {
+        // 0th index is not used as song IDs start from 1
+        this.songName = new String[songCount + 1];
+        this.nameRank = new int[songCount + 1];
+        this.songAtRank = new int[songCount + 1];
+        this.playCount = new int[songCount + 1];
+        this.score = new int[Category.COUNT][songCount + 1];
+        this.categoryKey = new long[Category.COUNT][songCount + 1];
+        this.playCountKey = new long[songCount + 1];
+    }
+
+    // Number of slots in each column, the largest song ID is one less than this
+    public int capacity() {
+        return this.songName.length;
+    }
+
+    // Store the song infos given in the songs file (songID, playCount, then one score per category) and its name
+    public void add(int[] songInfo, String songName) {
+        int songID = songInfo[0];
+        this.songName[songID] = songName;
+        this.playCount[songID] = songInfo[1];
+        for(int i = 0; i < Category.COUNT; i++) {
+            this.score[i][songID] = songInfo[2 + i];
+        }
+    }
+
+    //  Assign each song the rank of its name in lexicographic order and pack the sort keys of every category, called once
+    // after all songs are stored
+    public void buildSortKeys() {
+        Integer[] songIDs = new Integer[this.songName.length - 1];
+        int count = 0;
+        for(int i = 1; i < this.songName.length; i++) {
+            if(this.songName[i] != null) {
+                songIDs[count++] = i;
+            }
+        }
+        songIDs = Arrays.copyOf(songIDs, count);
+        Arrays.sort(songIDs, Comparator.comparing(songID -> this.songName[songID]));  // Stable, equal names stay in ID order
+
+        for(int rank = 0; rank < count; rank++) {
+            this.nameRank[songIDs[rank]] = rank;
+            this.songAtRank[rank] = songIDs[rank];
+        }
+
+        for(int i = 0; i < count; i++) {
+            int songID = songIDs[i];
+            for(int j = 0; j < Category.COUNT; j++) {
+                this.categoryKey[j][songID] = sortKey(this.score[j][songID], this.nameRank[songID]);
+            }
+            this.playCountKey[songID] = sortKey(this.playCount[songID], this.nameRank[songID]);
+        }
+    }
+
+    private static long sortKey(int value, int nameRank) {
+        return ((long) value << 32) | (~nameRank & 0xFFFFFFFFL);
+    }
+
+    // Song whose sort key in any column is the given key
+    public int songOfKey(long key) {
+        return this.songAtRank[~(int) key];
+    }
+
+    // Sort key column of the given vibe category
+    public long[] sortKeys(Category category) {
+        return this.categoryKey[category.index];
+    }
+
+    //  Method that compares two songs according to a vibe category, positive if the first song has a higher score
+    // or the same score but a lexicographically smaller name
+    public int compare(int song1, int song2, Category category) {
+        long[] keys = sortKeys(category);
+        return Long.compare(keys[song1], keys[song2]);
+    }
+
+    // Write every column to a snapshot, see StateSnapshot
+    public void write(SnapshotWriter output) throws IOException {
+        int capacity = capacity();
+        output.writeInt(capacity);
+        for(int i = 1; i < capacity; i++) {
+            if(this.songName[i] == null) {
+                output.writeInt(-1);
+            }
+            else {
+                byte[] name = this.songName[i].getBytes(StandardCharsets.UTF_8);
+                output.writeInt(name.length);
+                output.writeBytes(name, name.length);
+            }
+        }
+        output.writeInts(this.nameRank, 0, capacity);
+        output.writeInts(this.songAtRank, 0, capacity);
+        output.writeInts(this.playCount, 0, capacity);
+        for(int i = 0; i < Category.COUNT; i++) {
+            output.writeInts(this.score[i], 0, capacity);
+            output.writeLongs(this.categoryKey[i]);
+        }
+        output.writeLongs(this.playCountKey);
+    }
+
+    // Read the columns written by write(), sort keys are read as they are instead of being built again
+    public static SongStore read(SnapshotReader input) throws IOException {
+        int capacity = input.readInt();
+        SongStore songs = new SongStore(capacity - 1);
+        byte[] name = new byte[64];
+        for(int i = 1; i < capacity; i++) {
+            int length = input.readInt();
+            if(length >= 0) {
+                if(name.length < length) {
+                    name = new byte[length * 2];
+                }
+                input.readBytes(name, length);
+                songs.songName[i] = new String(name, 0, length, StandardCharsets.UTF_8);
+            }
+        }
+        input.readInts(songs.nameRank, 0, capacity);
+        input.readInts(songs.songAtRank, 0, capacity);
+        input.readInts(songs.playCount, 0, capacity);
+        for(int i = 0; i < Category.COUNT; i++) {
+            input.readInts(songs.score[i], 0, capacity);
+            input.readLongs(songs.categoryKey[i]);
+        }
+        input.readLongs(songs.playCountKey);
+        return songs;
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ForkJoinPool;
+
+//  Binary snapshot of everything the Epic Blend needs to continue processing events: the song columns, the playlists and
+// the heaps of each category. Restoring it reads the arrays as they were written, so a restart skips
+// parsing the input files, sorting the song names and heapifying. The file holds the magic number, the format version,
+// the parts it contains, then the limits and the heap arity, the song columns, the playlists and the state of each
+// category in this order. Heaps are written in slot order, which depends on the arity, so a blend is restored with the
+// arity it was written with.
+//  The catalog never changes after loading, so a file may hold only the catalog or only the blend over it. Blends that
+// are saved repeatedly write the catalog once and then only their own state, see DurableEpicBlend
+public class StateSnapshot {
+    private static final long MAGIC = InputReader.tokenCode("EPICSNAP");
+    private static final int FORMAT_VERSION = 7;
+    private static final int CATALOG = 1;  // Parts a file may contain
+    private static final int BLEND = 2;
+
+    public final SongStore songs;
+    public final int[] limits;
+    public final Membership membership;
+    public final EpicBlend epicBlend;
+
+    StateSnapshot(SongStore songs, int[] limits, Membership membership, EpicBlend epicBlend) {
+        this.songs = songs;
+        this.limits = limits;
+        this.membership = membership;
+        this.epicBlend = epicBlend;
+    }
+
+    //  Write the state between two events. The snapshot is written next to the target and moved over it at the end, so
+    // a crash while writing leaves the previous snapshot intact
+    public static void write(Path path, SongStore songs, int[] limits, Membership membership, EpicBlend epicBlend) throws IOException {
+        write(path, CATALOG | BLEND, songs, limits, membership, epicBlend);
+    }
+
+    // Write only the catalog, see readCatalog()
+    public static void writeCatalog(Path path, SongStore songs) throws IOException {
+        write(path, CATALOG, songs, null, null, null);
+    }
+
+    // Write only the blend, it is read back over the catalog it was created with, see readBlend()
+    public static void writeBlend(Path path, int[] limits, Membership membership, EpicBlend epicBlend) throws IOException {
+        write(path, BLEND, null, limits, membership, epicBlend);
+    }
+
+    private static void write(Path path, int parts, SongStore songs, int[] limits, Membership membership, EpicBlend epicBlend) throws IOException {
+        Path partial = path.resolveSibling(path.getFileName() + ".partial");
+        try(SnapshotWriter output = new SnapshotWriter(partial)) {
+            output.writeLong(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(parts);
+            if((parts & BLEND) != 0) {
+                output.writeInt(limits.length);
+                output.writeInts(limits, 0, limits.length);
+                output.writeInt(epicBlend.heapArity());
+            }
+
+            if((parts & CATALOG) != 0) {
+                songs.write(output);
+            }
+
+            if((parts & BLEND) != 0) {
+                membership.write(output);
+
+                epicBlend.write(output);
+            }
+        }
+        Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Restore a snapshot written by write(), the pool is handed to the restored EpicBlend and may be null
+    public static StateSnapshot read(Path path, ForkJoinPool pool) throws IOException {
+        return read(path, CATALOG | BLEND, null, pool);
+    }
+
+    // Read the catalog written by writeCatalog()
+    public static SongStore readCatalog(Path path) throws IOException {
+        return read(path, CATALOG, null, null).songs;
+    }
+
+    // Restore a blend written by writeBlend() over the catalog it was created with
+    public static StateSnapshot readBlend(Path path, SongStore songs, ForkJoinPool pool) throws IOException {
+        return read(path, BLEND, songs, pool);
+    }
+
+    private static StateSnapshot read(Path path, int parts, SongStore songs, ForkJoinPool pool) throws IOException {
+        try(SnapshotReader input = new SnapshotReader(path)) {
+            if(input.readLong() != MAGIC) {
+                throw new IOException(path + " is not an Epic Blend snapshot");
+            }
+            int formatVersion = input.readInt();
+            if(formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + formatVersion);
+            }
+            if(input.readInt() != parts) {
+                throw new IOException(path + " does not hold the expected parts of a snapshot");
+            }
+            int[] limits = null;
+            int heapArity = 0;
+            if((parts & BLEND) != 0) {
+                limits = new int[input.readInt()];
+                input.readInts(limits, 0, limits.length);
+                heapArity = input.readInt();
+                if(heapArity < 2) {
+                    throw new IOException(path + " holds heaps of arity " + heapArity);
+                }
+            }
+
+            if((parts & CATALOG) != 0) {
+                songs = SongStore.read(input);
+            }
+
+            Membership membership = null;
+            EpicBlend epicBlend = null;
+            if((parts & BLEND) != 0) {
+                membership = Membership.read(input);
+
+                epicBlend = new EpicBlend(limits, songs, membership, pool, heapArity);
+                epicBlend.read(input);
+            }
+
+            return new StateSnapshot(songs, limits, membership, epicBlend);
+        }
+    }
+}
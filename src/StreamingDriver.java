@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import javax.management.JMException;
+
+//  Applies a stream of events to the Epic Blend as they arrive instead of reading a counted block. The stream starts
+// like the event file (limits and playlists), the event count line is optional and ignored, and events are applied
+// until the input ends, which for stdin or a followed file may be never. Only the current event is held in memory, and
+// the output is flushed according to the flush policy. With --journal=dir the ADD and REM events are journaled and
+// checkpointed by a DurableEpicBlend in that directory, and a restart recovers from it: the stream then holds only the
+// events after the crash and the songs file is not read. --metrics=MS prints the latencies and heap sizes of the blend,
+// and the checkpoint pauses with --journal, to stderr every MS milliseconds, --jmx exposes them as the MBean
+// epicblend:type=Metrics. Run with:
+// java StreamingDriver <songs file> <event stream file or -> [--out=file] [--flush=event|every:N|interval:MS] [--follow=MS]
+//     [--journal=dir] [--checkpoint-every=N] [--group-commit=N] [--commit-delay=MS] [--metrics=MS] [--jmx]
+public class StreamingDriver {
+    private final EpicBlend epicBlend;
+    private final OutputSink output;  // Guarded by its own lock, the flusher thread of a timed policy shares it
+    private final FlushPolicy policy;
+    private final DurableEpicBlend durable;  // Journals the ADD and REM events, null without --journal
+
+    private int unflushedEvents;  // Events whose output was not flushed yet
+    private long lastFlush;  // System.nanoTime() of the last flush
+    private volatile IOException flushFailure;  // Failure of the flusher thread, rethrown by the driver
+
+    StreamingDriver(EpicBlend epicBlend, OutputSink output, FlushPolicy policy) {
+        this(epicBlend, output, policy, null);
+    }
+
+    StreamingDriver(DurableEpicBlend durable, OutputSink output, FlushPolicy policy) {
+        this(durable.epicBlend, output, policy, durable);
+    }
+
+    private StreamingDriver(EpicBlend epicBlend, OutputSink output, FlushPolicy policy, DurableEpicBlend durable) {
+        this.epicBlend = epicBlend;
+        this.output = output;
+        this.policy = policy;
+        this.durable = durable;
+        this.unflushedEvents = 0;
+        this.lastFlush = System.nanoTime();
+    }
+
+    public static void main(String[] args) throws IOException, JMException {
+        if(args.length < 2) {
+            System.err.println("Usage: StreamingDriver <songs file> <event stream file or -> [--out=file] [--flush=event|every:N|interval:MS] [--follow=MS]"
+                    + " [--journal=dir] [--checkpoint-every=N] [--group-commit=N] [--commit-delay=MS] [--metrics=MS] [--jmx]");
+            System.exit(1);
+        }
+        Path outPath = null;
+        FlushPolicy policy = FlushPolicy.perEvent();
+        long followMillis = 0;
+        Path journalDirectory = null;
+        long checkpointEvery = 100_000;
+        int groupSize = 256;
+        long commitDelayMillis = 5;
+        long metricsMillis = 0;
+        boolean jmx = false;
+        for(int i = 2; i < args.length; i++) {
+            if(args[i].startsWith("--out=")) {
+                outPath = Path.of(args[i].substring("--out=".length()));
+            }
+            else if(args[i].startsWith("--flush=")) {
+                policy = FlushPolicy.parse(args[i].substring("--flush=".length()));
+            }
+            else if(args[i].startsWith("--follow=")) {
+                followMillis = Long.parseLong(args[i].substring("--follow=".length()));
+            }
+            else if(args[i].startsWith("--journal=")) {
+                journalDirectory = Path.of(args[i].substring("--journal=".length()));
+            }
+            else if(args[i].startsWith("--checkpoint-every=")) {
+                checkpointEvery = Long.parseLong(args[i].substring("--checkpoint-every=".length()));
+            }
+            else if(args[i].startsWith("--group-commit=")) {
+                groupSize = Integer.parseInt(args[i].substring("--group-commit=".length()));
+            }
+            else if(args[i].startsWith("--commit-delay=")) {
+                commitDelayMillis = Long.parseLong(args[i].substring("--commit-delay=".length()));
+            }
+            else if(args[i].startsWith("--metrics=")) {
+                metricsMillis = Long.parseLong(args[i].substring("--metrics=".length()));
+            }
+            else if(args[i].equals("--jmx")) {
+                jmx = true;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        DurableEpicBlend recovered = journalDirectory != null && DurableEpicBlend.hasCheckpoint(journalDirectory)
+                ? DurableEpicBlend.recover(journalDirectory, null, checkpointEvery, groupSize, commitDelayMillis)
+                : null;
+
+        MetricsRegistry metrics = metricsMillis > 0 || jmx ? new MetricsRegistry() : null;
+        InputReader input = args[1].equals("-") ? new InputReader(System.in) : new InputReader(Path.of(args[1]), followMillis);
+        TextMetricsReporter textReporter = metricsMillis > 0 ? new TextMetricsReporter(metrics, System.err, metricsMillis) : null;
+        JmxMetricsReporter jmxReporter = jmx ? new JmxMetricsReporter(metrics, "epicblend:type=Metrics") : null;
+        try(input; OutputSink output = outPath == null ? OutputSink.toStdout() : OutputSink.toFile(outPath, true)) {
+            if(recovered != null) {
+                if(metrics != null) {
+                    recovered.epicBlend.enableMetrics(metrics, "");
+                    recovered.enableMetrics(metrics, "");
+                }
+                try(recovered) {
+                    new StreamingDriver(recovered, output, policy).run(input);
+                }
+                return;
+            }
+
+            SongStore songStore;
+            try(InputReader songsInput = new InputReader(Path.of(args[0]))) {
+                songStore = BlendInput.loadSongs(songsInput);
+            }
+            BlendInput blendInput = BlendInput.load(songStore, input);
+            EpicBlend epicBlend = new EpicBlend(blendInput.limits, songStore, blendInput.membership);
+            if(metrics != null) {
+                epicBlend.enableMetrics(metrics, "");
+            }
+            epicBlend.createEpicBlend(blendInput.initialEntries);
+
+            if(journalDirectory != null) {
+                try(DurableEpicBlend durable = DurableEpicBlend.create(journalDirectory, songStore, blendInput.limits, blendInput.membership, epicBlend,
+                        checkpointEvery, groupSize, commitDelayMillis)) {
+                    if(metrics != null) {
+                        durable.enableMetrics(metrics, "");
+                    }
+                    new StreamingDriver(durable, output, policy).run(input);
+                }
+                return;
+            }
+            new StreamingDriver(epicBlend, output, policy).run(input);
+        }
+        finally {  // The last report follows the last event
+            if(textReporter != null) {
+                textReporter.close();
+            }
+            if(jmxReporter != null) {
+                jmxReporter.close();
+            }
+        }
+    }
+
+    // Apply every event of the input until it ends
+    public void run(InputReader input) throws IOException {
+        if(input.nextIsDigit()) {
+            input.nextInt();  // Event count of an event file, not needed
+        }
+
+        Thread flusher = this.policy.isTimed() ? startFlusher() : null;
+        try {
+            while(input.hasNext()) {
+                EventType eventType = EventType.of(input.nextTokenCode());
+                int songID = 0;
+                int playlistID = 0;
+                if(eventType != EventType.ASK) {
+                    songID = input.nextInt();
+                    playlistID = input.nextInt();
+                }
+
+                synchronized(this.output) {
+                    apply(eventType, songID, playlistID);
+                    this.unflushedEvents++;
+                    if(isFlushDue()) {
+                        flush();
+                    }
+                }
+                if(this.flushFailure != null) {
+                    throw this.flushFailure;
+                }
+            }
+        }
+        finally {
+            if(flusher != null) {
+                flusher.interrupt();
+            }
+        }
+        synchronized(this.output) {
+            flush();
+        }
+    }
+
+    private void apply(EventType eventType, int songID, int playlistID) throws IOException {
+        if(this.durable != null && eventType != EventType.ASK) {
+            if(eventType == EventType.ADD) {
+                this.durable.add(songID, playlistID, this.output);
+            }
+            else {
+                this.durable.remove(songID, playlistID, this.output);
+            }
+            return;
+        }
+        switch (eventType) {
+            case REM -> {
+                this.epicBlend.remove(songID, playlistID, this.output);
+            }
+            case ADD -> {
+                this.epicBlend.add(songID, playlistID, this.output);
+            }
+            case ASK -> this.epicBlend.ask(this.output);
+        }
+    }
+
+    private boolean isFlushDue() {
+        if(this.policy.isTimed()) {
+            return System.nanoTime() - this.lastFlush >= this.policy.intervalNanos;
+        }
+        return this.unflushedEvents >= this.policy.everyEvents;
+    }
+
+    // Must hold the lock of the output
+    private void flush() throws IOException {
+        this.output.flush();
+        this.unflushedEvents = 0;
+        this.lastFlush = System.nanoTime();
+    }
+
+    //  Thread that flushes the output of a timed policy while the driver waits for the next event, otherwise the output
+    // of the last events would be held back until more events arrive
+    private Thread startFlusher() {
+        Thread flusher = new Thread(() -> {
+            long intervalMillis = Math.max(1, this.policy.intervalNanos / 1_000_000);
+            try {
+                while(true) {
+                    Thread.sleep(intervalMillis);
+                    synchronized(this.output) {
+                        if(this.unflushedEvents > 0 && isFlushDue()) {
+                            flush();
+                        }
+                    }
+                }
+            }
+            catch(InterruptedException e) {
+                // The stream ended
+            }
+            catch(IOException e) {
+                this.flushFailure = e;
+            }
+        }, "epic-blend-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        return flusher;
+    }
+}
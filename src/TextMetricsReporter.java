@@ -0,0 +1,51 @@
+import java.io.Closeable;
+import java.io.PrintStream;
+
+// Prints every metric of a registry at a fixed period from a daemon thread, and once more when closed
+public class TextMetricsReporter implements Closeable {
+    private final MetricsRegistry registry;
+    private final PrintStream out;
+    private final Thread printer;
+
+    TextMetricsReporter(MetricsRegistry registry, PrintStream out, long periodMillis) {
+        if(periodMillis < 1) {
+            throw new IllegalArgumentException("Report period must be positive, got " + periodMillis);
+        }
+        this.registry = registry;
+        this.out = out;
+        this.printer = new Thread(() -> {
+            try {
+                while(true) {
+                    Thread.sleep(periodMillis);
+                    print();
+                }
+            }
+            catch(InterruptedException e) {
+                // Closed
+            }
+        }, "epic-blend-metrics");
+        this.printer.setDaemon(true);
+        this.printer.start();
+    }
+
+    private void print() {
+        synchronized(this.out) {
+            this.out.println("# metrics at " + System.currentTimeMillis());
+            this.registry.print(this.out);
+            this.out.flush();
+        }
+    }
+
+    // Stop the periodic reports and print the final values
+    @Override
+    public void close() {
+        this.printer.interrupt();
+        try {
+            this.printer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        print();
+    }
+}
@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Heaps of every arity give out their items in the order of a sorted set, ties broken by ID
+class BinaryHeapTest {
+    private static final int ITEMS = 400;
+
+    // Order the heap gives out items in: larger keys first in a max heap, smaller ones in a min heap, then lower IDs
+    // first in a max heap and last in a min heap
+    private static Comparator<Integer> order(long[] keys, boolean isMaxHeap) {
+        Comparator<Integer> byKey = Comparator.comparingLong(item -> keys[item]);
+        Comparator<Integer> byID = Comparator.naturalOrder();
+        Comparator<Integer> ascending = byKey.thenComparing(byID.reversed());
+        return isMaxHeap ? ascending.reversed() : ascending;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4, 5, 6})
+    void randomOperationsMatchSortedSet(int arity) {
+        for(boolean isMaxHeap : new boolean[] {true, false}) {
+            Random random = new Random(arity * 31 + (isMaxHeap ? 1 : 0));
+            long[] keys = new long[ITEMS + 1];
+            int[] positions = new int[ITEMS + 1];
+            for(int item = 1; item <= ITEMS; item++) {
+                keys[item] = random.nextInt(50);  // Many equal keys
+            }
+            BinaryHeap heap = new BinaryHeap(keys, isMaxHeap, positions, arity);
+            TreeSet<Integer> expected = new TreeSet<>(order(keys, isMaxHeap));
+
+            for(int step = 0; step < 20_000; step++) {
+                int item = 1 + random.nextInt(ITEMS);
+                int operation = random.nextInt(4);
+                if(!expected.contains(item)) {
+                    assertFalse(heap.contains(item));
+                    heap.insert(item);
+                    expected.add(item);
+                }
+                else if(operation == 0) {
+                    heap.remove(item);
+                    expected.remove(item);
+                }
+                else if(operation == 1) {
+                    assertEquals((int) expected.pollFirst(), heap.pop());
+                }
+                else {
+                    expected.remove(item);
+                    keys[item] = random.nextInt(50);
+                    heap.update(item);
+                    expected.add(item);
+                }
+
+                assertEquals(expected.size(), heap.size());
+                if(!expected.isEmpty()) {
+                    assertEquals((int) expected.first(), heap.peek());
+                }
+            }
+
+            while(!expected.isEmpty()) {
+                assertEquals((int) expected.pollFirst(), heap.pop());
+            }
+            assertTrue(heap.isEmpty());
+            for(int item = 1; item <= ITEMS; item++) {
+                assertFalse(heap.contains(item));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4, 5, 6})
+    void bulkInsertionsKeepHeapOrder(int arity) {
+        Random random = new Random(arity);
+        long[] keys = new long[ITEMS + 1];
+        int[] positions = new int[ITEMS + 1];
+        List<Integer> items = new ArrayList<>();
+        for(int item = 1; item <= ITEMS; item++) {
+            keys[item] = random.nextInt(20);
+            items.add(item);
+        }
+        BinaryHeap heap = new BinaryHeap(keys, true, positions, arity);
+        heap.insert(items.get(0));
+        int[] rest = items.subList(1, ITEMS).stream().mapToInt(Integer::intValue).toArray();
+        heap.insertAll(rest, rest.length);
+
+        items.sort(order(keys, true));
+        for(int item : items) {
+            assertEquals(item, heap.pop());
+        }
+    }
+
+    @Test
+    void heapBuiltFromItemsStopsAtFirstZero() {
+        long[] keys = {0, 5, 9, 1, 7};
+        BinaryHeap heap = new BinaryHeap(new int[] {1, 2, 3, 0, 4}, keys, false);
+        assertEquals(3, heap.size());
+        assertEquals(3, heap.pop());
+        assertEquals(1, heap.pop());
+        assertEquals(2, heap.pop());
+    }
+
+    @Test
+    void arrayShrinksAfterHeavyChurn() {
+        long[] keys = new long[10_001];
+        int[] positions = new int[10_001];
+        BinaryHeap heap = new BinaryHeap(keys, true, positions);
+        for(int item = 1; item <= 10_000; item++) {
+            keys[item] = item;
+            heap.insert(item);
+        }
+        int fullCapacity = heap.capacity();
+        for(int item = 10_000; item > 10; item--) {
+            assertEquals(item, heap.pop());
+        }
+        assertTrue(heap.capacity() < fullCapacity / 100);
+        for(int item = 10; item >= 1; item--) {
+            assertEquals(item, heap.pop());
+        }
+    }
+
+    @Test
+    void arrayNeverShrinksBelowMinimum() {
+        long[] keys = new long[14];
+        int[] positions = new int[14];
+        BinaryHeap heap = new BinaryHeap(keys, true, positions);
+        int[] items = new int[13];
+        for(int item = 1; item <= 13; item++) {
+            keys[item] = item;
+            items[item - 1] = item;
+        }
+        heap.insertAll(items, items.length);  // An array of 14 slots, half of it is below the minimum
+        for(int item = 13; item >= 1; item--) {
+            assertEquals(item, heap.pop());
+            assertTrue(heap.capacity() >= 7);
+        }
+    }
+}
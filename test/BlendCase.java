@@ -0,0 +1,150 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+//  Input files of a blend, either given inline or read from a directory under test/cases with expected.txt, the output
+// the original program printed for them. The events are parsed once, the catalog and the playlists are loaded again for
+// every blend since events change them
+class BlendCase {
+    static final Path ROOT = Path.of("test", "cases");
+
+    final String name;
+    private final byte[] songsFile;
+    private final byte[] eventFile;
+    private final String expected;  // Null for an inline case
+    private final EventType[] types;
+    private final int[] songIDs;
+    private final int[] playlistIDs;
+
+    private BlendCase(String name, byte[] songsFile, byte[] eventFile, String expected) throws IOException {
+        this.name = name;
+        this.songsFile = songsFile;
+        this.eventFile = eventFile;
+        this.expected = expected;
+        try(InputReader input = reader(eventFile)) {
+            BlendInput.load(load().songs, input);
+            int count = input.nextInt();
+            this.types = new EventType[count];
+            this.songIDs = new int[count];
+            this.playlistIDs = new int[count];
+            for(int i = 0; i < count; i++) {
+                this.types[i] = EventType.of(input.nextTokenCode());
+                if(this.types[i] != EventType.ASK) {
+                    this.songIDs[i] = input.nextInt();
+                    this.playlistIDs[i] = input.nextInt();
+                }
+            }
+        }
+    }
+
+    // Case given by the contents of its songs file and its event file
+    static BlendCase of(String songsFile, String eventFile) throws IOException {
+        return new BlendCase("inline", songsFile.getBytes(StandardCharsets.US_ASCII), eventFile.getBytes(StandardCharsets.US_ASCII), null);
+    }
+
+    // Every case under test/cases, in name order
+    static Stream<BlendCase> all() throws IOException {
+        List<BlendCase> cases = new ArrayList<>();
+        try(Stream<Path> directories = Files.list(ROOT)) {
+            for(Path directory : directories.sorted().toList()) {
+                cases.add(new BlendCase(directory.getFileName().toString(), Files.readAllBytes(directory.resolve("songs.txt")),
+                        Files.readAllBytes(directory.resolve("general_small.txt")),
+                        Files.readString(directory.resolve("expected.txt"), StandardCharsets.US_ASCII)));
+            }
+        }
+        return cases.stream();
+    }
+
+    private static InputReader reader(byte[] file) {
+        return new InputReader(new ByteArrayInputStream(file));
+    }
+
+    // Fresh catalog, limits and playlists of the case
+    BlendInput load() throws IOException {
+        SongStore songs;
+        try(InputReader input = reader(this.songsFile)) {
+            songs = BlendInput.loadSongs(input);
+        }
+        try(InputReader input = reader(this.eventFile)) {
+            return BlendInput.load(songs, input);
+        }
+    }
+
+    // Epic Blend created from a fresh load of the case
+    EpicBlend create(BlendInput input, ForkJoinPool pool, int heapArity) {
+        EpicBlend epicBlend = new EpicBlend(input.limits, input.songs, input.membership, pool, heapArity);
+        epicBlend.createEpicBlend(input.initialEntries);
+        return epicBlend;
+    }
+
+    int eventCount() {
+        return this.types.length;
+    }
+
+    // Number of ADD and REM events among the first count events, the ones a DurableEpicBlend journals
+    int journaledCount(int count) {
+        int journaled = 0;
+        for(int i = 0; i < count; i++) {
+            if(this.types[i] != EventType.ASK) {
+                journaled++;
+            }
+        }
+        return journaled;
+    }
+
+    String expected() {
+        return this.expected;
+    }
+
+    // Output of every event applied one by one to a blend with the default heap arity
+    String run() throws IOException {
+        EpicBlend epicBlend = create(load(), null, BinaryHeap.DEFAULT_ARITY);
+        OutputSink output = OutputSink.inMemory();
+        apply(epicBlend, 0, eventCount(), output);
+        return output.contents();
+    }
+
+    // Apply the events from index from up to index to one by one
+    void apply(EpicBlend epicBlend, int from, int to, OutputSink output) throws IOException {
+        for(int i = from; i < to; i++) {
+            switch (this.types[i]) {
+                case ADD -> epicBlend.add(this.songIDs[i], this.playlistIDs[i], output);
+                case REM -> epicBlend.remove(this.songIDs[i], this.playlistIDs[i], output);
+                case ASK -> epicBlend.ask(output);
+            }
+        }
+    }
+
+    // Apply every event through batches of the given size, the way Main does
+    void applyBatched(EpicBlend epicBlend, int batchSize, OutputSink output) throws IOException {
+        EventBatch batch = new EventBatch(batchSize);
+        for(int i = 0; i < this.types.length; i++) {
+            batch.add(this.types[i], this.songIDs[i], this.playlistIDs[i]);
+            if(batch.isFull() || i == this.types.length - 1) {
+                batch.apply(epicBlend, output);
+            }
+        }
+    }
+
+    // Apply the events from index from up to index to through the journal of a durable blend
+    void apply(DurableEpicBlend durable, int from, int to, OutputSink output) throws IOException {
+        for(int i = from; i < to; i++) {
+            switch (this.types[i]) {
+                case ADD -> durable.add(this.songIDs[i], this.playlistIDs[i], output);
+                case REM -> durable.remove(this.songIDs[i], this.playlistIDs[i], output);
+                case ASK -> durable.epicBlend.ask(output);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+// Edge cases of the limits of a category, on blends small enough to follow by hand
+class CategoryStateTest {
+    // Four songs scored the same in every category, song 4 highest
+    private static final String SONGS = """
+            4
+            1 a 10 10 10 10
+            2 b 20 20 20 20
+            3 c 30 30 30 30
+            4 d 40 40 40 40
+            """;
+
+    @Test
+    void categoryLimitOfZeroChoosesNothing() throws IOException {
+        // Every playlist is at the limit without any chosen song to replace
+        String events = """
+                0 2 2 2
+                2
+                1 1 1
+                2 0
+                5
+                ADD 2 2
+                REM 2 2
+                ADD 3 1
+                ASK
+                REM 1 1
+                """;
+        assertEquals("0 0 0\n0 0 0\n".repeat(4), BlendCase.of(SONGS, events).run());
+    }
+
+    @Test
+    void blendLimitOfZeroChoosesNothing() throws IOException {
+        String events = """
+                1 0 0 0
+                1
+                1 2 1 2
+                4
+                ADD 4 1
+                REM 1 1
+                ASK
+                ADD 3 1
+                """;
+        assertEquals("0 0 0\n0 0 0\n".repeat(3), BlendCase.of(SONGS, events).run());
+    }
+
+    @Test
+    void songInTwoPlaylistsTakesOneSlot() throws IOException {
+        // Song 2 is offered by both playlists but takes a single slot, so song 3 gets the free slot without a removal
+        String events = """
+                1 2 2 2
+                2
+                1 1 2
+                2 1 2
+                3
+                ASK
+                ADD 3 2
+                ASK
+                """;
+        assertEquals("2\n3 3 3\n0 0 0\n3 2\n", BlendCase.of(SONGS, events).run());
+    }
+
+    @Test
+    void songKeepsItsSlotThroughAnotherPlaylist() throws IOException {
+        // Removing song 4 from playlist 1 lets playlist 2 offer it instead of song 3, the blend does not change
+        String events = """
+                1 2 2 2
+                3
+                1 1 4
+                2 1 4
+                3 1 3
+                3
+                REM 4 1
+                ASK
+                REM 4 2
+                """;
+        assertEquals("0 0 0\n0 0 0\n4 3\n0 0 0\n4 4 4\n", BlendCase.of(SONGS, events).run());
+    }
+
+    @Test
+    void songAddedToSecondPlaylistWaitsInGeneralHeap() throws IOException {
+        // Song 4 is chosen through playlist 1, adding it to playlist 2 changes nothing until it leaves playlist 1
+        String events = """
+                2 2 2 2
+                2
+                1 1 4
+                2 1 1
+                4
+                ADD 4 2
+                ASK
+                REM 4 1
+                ASK
+                """;
+        assertEquals("0 0 0\n0 0 0\n4 1\n0 0 0\n0 0 0\n4 1\n", BlendCase.of(SONGS, events).run());
+    }
+}
@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The map agrees with a HashMap through growth and removals in the middle of probe runs
+class IntIntHashMapTest {
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(1);
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        for(int step = 0; step < 200_000; step++) {
+            // Few distinct keys, so the map fills up, empties out and probes long runs
+            int key = 1 + random.nextInt(step < 100_000 ? 5_000 : 300);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    int value = random.nextInt();
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> assertEquals((int) expected.merge(key, 3, Integer::sum), map.addTo(key, 3));
+                case 2 -> {
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+                }
+                default -> assertEquals((int) expected.getOrDefault(key, -1), map.get(key, -1));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for(int key = 1; key <= 5_000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals((int) expected.getOrDefault(key, -1), map.get(key, -1));
+        }
+    }
+
+    @Test
+    void keysSharingSlotsSurviveRemovals() {
+        // Multiples of a large power of two fall into few slots of a small table
+        IntIntHashMap map = new IntIntHashMap(4);
+        for(int i = 1; i <= 64; i++) {
+            map.put(i << 20, i);
+        }
+        for(int i = 1; i <= 64; i += 2) {
+            assertEquals(i, map.remove(i << 20, 0));
+        }
+        for(int i = 1; i <= 64; i++) {
+            assertEquals(i % 2 == 0 ? i : 0, map.get(i << 20, 0));
+        }
+        assertEquals(32, map.size());
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntIntHashMap map = new IntIntHashMap();
+        for(int key = 1; key <= 100; key++) {
+            map.put(key, key);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(50));
+        assertEquals(7, map.addTo(50, 7));
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// KeySort sorts the prefix it is given like Arrays.sort and leaves the rest of the array alone
+class KeySortTest {
+    private static void assertSorts(long[] keys, int length) {
+        long[] expected = keys.clone();
+        Arrays.sort(expected, 0, length);
+        KeySort.sort(keys, length);
+        assertArrayEquals(expected, keys);
+    }
+
+    @Test
+    void sortsShortAndLongPrefixes() {
+        Random random = new Random(3);
+        for(int length = 0; length <= 300; length++) {
+            long[] keys = random.longs(length + 10).toArray();
+            assertSorts(keys, length);
+        }
+    }
+
+    @Test
+    void sortsKeysThatShareMostDigits() {
+        Random random = new Random(4);
+        long[] keys = new long[5_000];
+        for(int i = 0; i < keys.length; i++) {
+            // Play count in the high bits and a name rank in the low ones, like SongStore packs them
+            keys[i] = (long) random.nextInt(10) << 32 | random.nextInt(1 << 20);
+        }
+        assertSorts(keys, keys.length);
+    }
+
+    @Test
+    void sortsNegativeAndEqualKeys() {
+        long[] keys = new long[200];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = i % 3 == 0 ? Long.MIN_VALUE : i % 3 == 1 ? -1 : 42;
+        }
+        assertSorts(keys, keys.length);
+
+        long[] descending = new long[1_000];
+        for(int i = 0; i < descending.length; i++) {
+            descending[i] = descending.length - 2 * i;
+        }
+        assertSorts(descending, descending.length);
+    }
+
+    @Test
+    void reusedBuffersGiveTheSameOrder() {
+        Random random = new Random(5);
+        long[] scratch = new long[1_000];
+        int[] counts = new int[KeySort.DIGIT_COUNT];
+        for(int round = 0; round < 50; round++) {
+            int length = random.nextInt(scratch.length + 1);
+            long[] keys = random.longs(length, -1_000, 1_000).toArray();
+            long[] expected = keys.clone();
+            Arrays.sort(expected);
+            KeySort.sort(keys, length, scratch, counts);  // Left over from the previous round
+            assertArrayEquals(expected, keys);
+        }
+    }
+}
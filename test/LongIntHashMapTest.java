@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The map agrees with a HashMap for keys packing two IDs, the way Membership uses it
+class LongIntHashMapTest {
+    private static long pair(int high, int low) {
+        return (long) high << 32 | low;
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(2);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for(int step = 0; step < 200_000; step++) {
+            long key = pair(1 + random.nextInt(100), 1 + random.nextInt(step < 100_000 ? 50 : 3));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    int value = random.nextInt();
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> {
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+                }
+                default -> assertEquals((int) expected.getOrDefault(key, -1), map.get(key, -1));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for(int high = 1; high <= 100; high++) {
+            for(int low = 1; low <= 50; low++) {
+                long key = pair(high, low);
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+        }
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        for(int i = 1; i <= 100; i++) {
+            map.put(pair(i, i), i);
+        }
+        assertEquals(100, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(pair(5, 5)));
+        assertEquals(-1, map.get(pair(5, 5), -1));
+    }
+}
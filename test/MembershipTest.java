@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Entries, their reuse and the walk over each playlist agree with a set of (song, playlist) pairs
+class MembershipTest {
+    private static final int PLAYLISTS = 6;
+    private static final int SONGS = 300;
+
+    @TempDir
+    Path directory;
+
+    // Songs of a playlist as walked through its entries
+    private static Set<Integer> walk(Membership membership, int playlistID) {
+        Set<Integer> songs = new HashSet<>();
+        for(int entry = membership.firstEntry(playlistID); entry != 0; entry = membership.nextEntry(entry)) {
+            assertEquals(playlistID, membership.playlistOf(entry));
+            songs.add(membership.songOf(entry));
+        }
+        return songs;
+    }
+
+    private static void assertPlaylists(Set<Integer>[] expected, Membership membership) {
+        for(int playlistID = 1; playlistID <= PLAYLISTS; playlistID++) {
+            assertEquals(expected[playlistID], walk(membership, playlistID));
+            assertEquals(expected[playlistID].size(), membership.playlistSize(playlistID));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void randomChangesMatchSetOfPairs() throws IOException {
+        Random random = new Random(5);
+        Membership membership = new Membership(PLAYLISTS);
+        Set<Integer>[] expected = new Set[PLAYLISTS + 1];
+        for(int playlistID = 1; playlistID <= PLAYLISTS; playlistID++) {
+            expected[playlistID] = new HashSet<>();
+        }
+
+        int maxAlive = 0;
+        for(int step = 0; step < 20_000; step++) {
+            int song = 1 + random.nextInt(SONGS);
+            int playlistID = 1 + random.nextInt(PLAYLISTS);
+            if(expected[playlistID].add(song)) {
+                int entry = membership.add(song, playlistID);
+                assertEquals(entry, membership.entryOf(song, playlistID));
+                maxAlive = Math.max(maxAlive, membership.entryCount());
+                assertTrue(entry <= maxAlive, "IDs of released entries are reused");
+            }
+            else {
+                expected[playlistID].remove(song);
+                int entry = membership.remove(song, playlistID);
+                assertEquals(song, membership.songOf(entry));  // Kept until released
+                membership.release(entry);
+                assertEquals(0, membership.entryOf(song, playlistID));
+            }
+            if(step % 1_000 == 0) {
+                assertPlaylists(expected, membership);
+            }
+        }
+        assertPlaylists(expected, membership);
+
+        Path path = this.directory.resolve("membership.bin");
+        try(SnapshotWriter output = new SnapshotWriter(path)) {
+            membership.write(output);
+        }
+        try(SnapshotReader input = new SnapshotReader(path)) {
+            Membership restored = Membership.read(input);
+            assertPlaylists(expected, restored);
+            assertEquals(membership.entryCount(), restored.entryCount());
+        }
+    }
+
+    @Test
+    void invalidChangesAreRejected() {
+        Membership membership = new Membership(2);
+        membership.add(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> membership.add(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> membership.add(1, 3));
+        assertEquals(0, membership.remove(1, 2));
+        assertEquals(1, membership.playlistSize(1));
+        assertEquals(0, membership.playlistSize(2));
+    }
+}
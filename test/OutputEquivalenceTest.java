@@ -0,0 +1,68 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+// Every way of running the blend prints what the original program printed for the cases under test/cases
+class OutputEquivalenceTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(Category.COUNT - 1);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    static Stream<BlendCase> cases() throws IOException {
+        return BlendCase.all();
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void unbatchedEventsMatchReference(BlendCase blendCase) throws IOException {
+        EpicBlend epicBlend = blendCase.create(blendCase.load(), null, BinaryHeap.DEFAULT_ARITY);
+        OutputSink output = OutputSink.inMemory();
+        blendCase.apply(epicBlend, 0, blendCase.eventCount(), output);
+        assertEquals(blendCase.expected(), output.contents());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void batchedEventsMatchReference(BlendCase blendCase) throws IOException {
+        for(int batchSize : new int[] {1, 2, 7, 1024}) {
+            EpicBlend epicBlend = blendCase.create(blendCase.load(), null, BinaryHeap.DEFAULT_ARITY);
+            OutputSink output = OutputSink.inMemory();
+            blendCase.applyBatched(epicBlend, batchSize, output);
+            assertEquals(blendCase.expected(), output.contents(), "batch size " + batchSize);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void parallelCategoriesMatchReference(BlendCase blendCase) throws IOException {
+        EpicBlend epicBlend = blendCase.create(blendCase.load(), pool, BinaryHeap.DEFAULT_ARITY);
+        OutputSink output = OutputSink.inMemory();
+        blendCase.applyBatched(epicBlend, 1024, output);
+        assertEquals(blendCase.expected(), output.contents());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void everyHeapArityMatchesReference(BlendCase blendCase) throws IOException {
+        for(int heapArity : new int[] {2, 3, 5, 8}) {
+            EpicBlend epicBlend = blendCase.create(blendCase.load(), null, heapArity);
+            OutputSink output = OutputSink.inMemory();
+            blendCase.apply(epicBlend, 0, blendCase.eventCount(), output);
+            assertEquals(blendCase.expected(), output.contents(), "heap arity " + heapArity);
+        }
+    }
+}
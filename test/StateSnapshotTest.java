@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+// A blend restored from a snapshot, or recovered from a checkpoint and its journal, goes on as if it was never stopped
+class StateSnapshotTest {
+    @TempDir
+    Path directory;
+
+    static Stream<BlendCase> cases() throws IOException {
+        return BlendCase.all();
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void restoredSnapshotContinuesTheOutput(BlendCase blendCase) throws IOException {
+        int half = blendCase.eventCount() / 2;
+        Path path = this.directory.resolve("blend.snapshot");
+
+        BlendInput input = blendCase.load();
+        EpicBlend epicBlend = blendCase.create(input, null, 3);
+        OutputSink output = OutputSink.inMemory();
+        blendCase.apply(epicBlend, 0, half, output);
+        StateSnapshot.write(path, input.songs, input.limits, input.membership, epicBlend);
+
+        StateSnapshot snapshot = StateSnapshot.read(path, null);
+        assertEquals(3, snapshot.epicBlend.heapArity());
+        blendCase.apply(snapshot.epicBlend, half, blendCase.eventCount(), output);
+        assertEquals(blendCase.expected(), output.contents());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void recoveredJournalContinuesTheOutput(BlendCase blendCase) throws IOException {
+        int count = blendCase.eventCount();
+        Path journal = this.directory.resolve("journal");
+
+        BlendInput input = blendCase.load();
+        EpicBlend epicBlend = blendCase.create(input, null, BinaryHeap.DEFAULT_ARITY);
+        OutputSink output = OutputSink.inMemory();
+        DurableEpicBlend durable = DurableEpicBlend.create(journal, input.songs, input.limits, input.membership, epicBlend, 7, 4, 1);
+        blendCase.apply(durable, 0, count / 3, output);
+        durable.close();
+
+        // Stopped twice, with a checkpoint every 7 events the journal usually holds events to replay
+        durable = DurableEpicBlend.recover(journal, null, 7, 4, 1);
+        assertEquals(blendCase.journaledCount(count / 3), durable.sequence());
+        blendCase.apply(durable, count / 3, 2 * count / 3, output);
+        durable.close();
+
+        durable = DurableEpicBlend.recover(journal, null, 7, 4, 1);
+        MetricsRegistry metrics = new MetricsRegistry();
+        durable.enableMetrics(metrics, "");
+        blendCase.apply(durable, 2 * count / 3, count, output);
+        durable.close();
+        assertEquals(blendCase.expected(), output.contents());
+        // The recovery took a checkpoint right away, then one follows every 7 journaled events
+        long checkpoints = (blendCase.journaledCount(count) - blendCase.journaledCount(2 * count / 3)) / 7;
+        assertEquals(checkpoints, metrics.value("checkpoint.count"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void corruptSnapshotIsRejected(BlendCase blendCase) throws IOException {
+        Path path = this.directory.resolve("blend.snapshot");
+        BlendInput input = blendCase.load();
+        EpicBlend epicBlend = blendCase.create(input, null, BinaryHeap.DEFAULT_ARITY);
+        StateSnapshot.write(path, input.songs, input.limits, input.membership, epicBlend);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[0] ^= 1;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> StateSnapshot.read(path, null));
+    }
+}